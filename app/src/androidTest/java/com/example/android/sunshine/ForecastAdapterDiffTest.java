@@ -0,0 +1,182 @@
+package com.example.android.sunshine;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import com.example.android.sunshine.data.database.ListWeatherEntry;
+import com.example.android.sunshine.utilities.WeatherFormatter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Counts the rebinds the forecast list gets for typical updates, using the adapter's own diff
+ * callback on rows formatted the way {@link MainViewModel} formats them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ForecastAdapterDiffTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final String LOCATION = "Mountain View, CA";
+
+    /**
+     * An emission that carries the same forecast should not rebind anything.
+     */
+    @Test
+    public void identicalForecastRebindsNothing() {
+        CountingUpdateCallback updates = diff(rows(forecast(14), true), rows(forecast(14), true));
+
+        assertEquals(0, updates.mChanged);
+        assertEquals(0, updates.mInserted + updates.mRemoved + updates.mMoved);
+    }
+
+    /**
+     * A revised temperature for one day should rebind only that row, and only its temperatures.
+     */
+    @Test
+    public void revisedDayRebindsOneRow() {
+        List<ListWeatherEntry> newForecast = forecast(14);
+        ListWeatherEntry day = newForecast.get(5);
+        newForecast.set(5, new ListWeatherEntry(day.getDate(), day.getWeatherId(),
+                day.getDescription(), day.getMin() - 3, day.getMax()));
+
+        CountingUpdateCallback updates = diff(rows(forecast(14), true), rows(newForecast, true));
+
+        assertEquals(1, updates.mChanged);
+        assertEquals(ForecastAdapter.PAYLOAD_TEMPERATURE, updates.mPayloads);
+    }
+
+    /**
+     * When a day passes, the first row should go and one row should be added at the end, while
+     * the days in between are not rebound.
+     */
+    @Test
+    public void passingDayShiftsWithoutRebinding() {
+        List<ListWeatherEntry> oldForecast = forecast(15);
+        List<ListWeatherEntry> newForecast = new ArrayList<>(oldForecast.subList(1, 15));
+        newForecast.add(entry(15, 800, "Clear"));
+
+        CountingUpdateCallback updates =
+                diff(rows(oldForecast.subList(0, 14), true), rows(newForecast, true));
+
+        assertEquals(0, updates.mChanged);
+        assertEquals(1, updates.mRemoved);
+        assertEquals(1, updates.mInserted);
+    }
+
+    /**
+     * A new condition should rebind the icon and the description of that row only.
+     */
+    @Test
+    public void newConditionRebindsIconAndDescription() {
+        List<ListWeatherEntry> newForecast = forecast(14);
+        ListWeatherEntry day = newForecast.get(0);
+        newForecast.set(0, new ListWeatherEntry(day.getDate(), 501, "Rain",
+                day.getMin(), day.getMax()));
+
+        CountingUpdateCallback updates = diff(rows(forecast(14), true), rows(newForecast, true));
+
+        assertEquals(1, updates.mChanged);
+        assertEquals(ForecastAdapter.PAYLOAD_ICON | ForecastAdapter.PAYLOAD_DESCRIPTION,
+                updates.mPayloads);
+    }
+
+    /**
+     * Switching units should rebind the temperatures of every row and nothing else.
+     */
+    @Test
+    public void unitsChangeRebindsTemperaturesOnly() {
+        CountingUpdateCallback updates = diff(rows(forecast(14), true), rows(forecast(14), false));
+
+        assertEquals(14, updates.mChanged);
+        assertEquals(ForecastAdapter.PAYLOAD_TEMPERATURE, updates.mPayloads);
+    }
+
+    private static List<ForecastRow> rows(List<ListWeatherEntry> entries, boolean isMetric) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        WeatherFormatter formatter = WeatherFormatter.getInstance(context, isMetric);
+        List<ForecastRow> rows = new ArrayList<>(entries.size());
+        for (ListWeatherEntry entry : entries) {
+            rows.add(ForecastRow.from(context, entry, LOCATION, formatter));
+        }
+        return rows;
+    }
+
+    private static List<ListWeatherEntry> forecast(int days) {
+        List<ListWeatherEntry> entries = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            entries.add(entry(i, 800, "Clear"));
+        }
+        return entries;
+    }
+
+    private static ListWeatherEntry entry(int day, int weatherId, String description) {
+        return new ListWeatherEntry(day * DAY, weatherId, description, 10 + day % 3, 20 + day % 5);
+    }
+
+    private static CountingUpdateCallback diff(List<ForecastRow> oldList,
+                                               List<ForecastRow> newList) {
+        DiffUtil.ItemCallback<ForecastRow> itemCallback = ForecastAdapter.DIFF_CALLBACK;
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() { return oldList.size(); }
+
+            @Override
+            public int getNewListSize() { return newList.size(); }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return itemCallback.areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return itemCallback.areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+
+            @Override
+            public Object getChangePayload(int oldPosition, int newPosition) {
+                return itemCallback.getChangePayload(oldList.get(oldPosition), newList.get(newPosition));
+            }
+        });
+
+        CountingUpdateCallback updates = new CountingUpdateCallback();
+        result.dispatchUpdatesTo(updates);
+        return updates;
+    }
+
+    /**
+     * Counts what the adapter would be told. Every changed item is one rebind.
+     */
+    private static final class CountingUpdateCallback implements ListUpdateCallback {
+        int mInserted;
+        int mRemoved;
+        int mMoved;
+        int mChanged;
+        /* Payloads of all the changes, OR-ed */
+        int mPayloads;
+
+        @Override
+        public void onInserted(int position, int count) { mInserted += count; }
+
+        @Override
+        public void onRemoved(int position, int count) { mRemoved += count; }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) { mMoved++; }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mChanged += count;
+            if (payload != null) mPayloads |= (Integer) payload;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.sunshine.data;
+
+import android.os.Process;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class PriorityExecutorTest {
+
+    private static final int QUEUE_CAPACITY = 4;
+
+    private PriorityExecutor mExecutor;
+    private CountDownLatch mRelease;
+
+    @Before
+    public void setUp() throws Exception {
+        mExecutor = new PriorityExecutor("test-disk", 1, QUEUE_CAPACITY,
+                Process.THREAD_PRIORITY_BACKGROUND);
+
+        /* Keep the only thread busy so that the next tasks queue up */
+        mRelease = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        mExecutor.execute(() -> {
+            started.countDown();
+            await(mRelease);
+        }, PriorityExecutor.Priority.BACKGROUND);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mRelease.countDown();
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * A user-visible read submitted after queued sync writes should run before them, and tasks
+     * of the same priority should keep their order.
+     */
+    @Test
+    public void userVisibleTasksRunFirst() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        mExecutor.execute(() -> { order.add("write 1"); done.countDown(); },
+                PriorityExecutor.Priority.BACKGROUND);
+        mExecutor.execute(() -> { order.add("write 2"); done.countDown(); },
+                PriorityExecutor.Priority.BACKGROUND);
+        mExecutor.execute(() -> { order.add("read"); done.countDown(); },
+                PriorityExecutor.Priority.USER_VISIBLE);
+
+        mRelease.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("read", order.get(0));
+        assertEquals("write 1", order.get(1));
+        assertEquals("write 2", order.get(2));
+    }
+
+    /**
+     * A task submitted while the queue is full should be rejected and counted.
+     */
+    @Test
+    public void fullQueueRejects() throws Exception {
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            mExecutor.execute(() -> { }, PriorityExecutor.Priority.BACKGROUND);
+        }
+        try {
+            mExecutor.execute(() -> { }, PriorityExecutor.Priority.USER_VISIBLE);
+            fail("Expected the full queue to reject the task");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        ExecutorMetrics metrics = mExecutor.getMetrics();
+        assertEquals(1, metrics.getRejectedCount());
+        assertEquals(QUEUE_CAPACITY, metrics.getQueueDepth());
+        assertEquals(QUEUE_CAPACITY, metrics.getMaxQueueDepth());
+    }
+
+    /**
+     * Callers racing for the last free slots should never push the queue past its capacity.
+     */
+    @Test
+    public void concurrentCallersRespectCapacity() throws Exception {
+        int callers = 4 * QUEUE_CAPACITY;
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(callers);
+        AtomicInteger accepted = new AtomicInteger();
+        for (int i = 0; i < callers; i++) {
+            new Thread(() -> {
+                await(go);
+                try {
+                    mExecutor.execute(() -> { }, PriorityExecutor.Priority.BACKGROUND);
+                    accepted.incrementAndGet();
+                } catch (RejectedExecutionException expected) {
+                }
+                done.countDown();
+            }).start();
+        }
+
+        go.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        ExecutorMetrics metrics = mExecutor.getMetrics();
+        assertEquals(QUEUE_CAPACITY, accepted.get());
+        assertEquals(QUEUE_CAPACITY, metrics.getQueueDepth());
+        assertEquals(QUEUE_CAPACITY, metrics.getMaxQueueDepth());
+        assertEquals(callers - QUEUE_CAPACITY, metrics.getRejectedCount());
+    }
+
+    /**
+     * Wait and run times should be recorded for every task, on a thread named after the executor.
+     */
+    @Test
+    public void recordsTimesOnNamedThreads() throws Exception {
+        String[] threadName = new String[1];
+        CountDownLatch done = new CountDownLatch(1);
+        mExecutor.execute(() -> {
+            threadName[0] = Thread.currentThread().getName();
+            done.countDown();
+        });
+
+        Thread.sleep(50);
+        mRelease.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        mExecutor.shutdown();
+        assertTrue(mExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        ExecutorMetrics metrics = mExecutor.getMetrics();
+        assertEquals("test-disk-1", threadName[0]);
+        assertEquals(2, metrics.getCompletedCount());
+        assertTrue(metrics.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(metrics.getMaxRunNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.android.sunshine.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.preference.PreferenceManager;
+
+import com.example.android.sunshine.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class SunshinePreferencesTest {
+
+    private Context mContext;
+    private SharedPreferences mPreferences;
+    private String mSavedUnits;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mPreferences = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mSavedUnits = mPreferences.getString(mContext.getString(R.string.pref_units_key), null);
+    }
+
+    @After
+    public void tearDown() {
+        String unitsKey = mContext.getString(R.string.pref_units_key);
+        if (mSavedUnits == null) {
+            mPreferences.edit().remove(unitsKey).commit();
+        } else {
+            mPreferences.edit().putString(unitsKey, mSavedUnits).commit();
+        }
+        SunshinePreferences.onPreferenceChanged(mPreferences, unitsKey);
+    }
+
+    /**
+     * A value saved through SunshinePreferences should be readable right away on the same
+     * thread, without waiting for the change listener.
+     */
+    @Test
+    public void saveIsVisibleImmediately() {
+        long now = System.currentTimeMillis();
+        SunshinePreferences.saveLastSyncTime(mContext, now);
+
+        assertEquals(now, SunshinePreferences.getLastSyncTimeInMillis(mContext));
+    }
+
+    /**
+     * A change made elsewhere should swap in a new snapshot and leave the old one as it was.
+     */
+    @Test
+    public void changeSwapsSnapshot() {
+        String unitsKey = mContext.getString(R.string.pref_units_key);
+        mPreferences.edit()
+                .putString(unitsKey, mContext.getString(R.string.pref_units_metric)).commit();
+        SunshinePreferences.onPreferenceChanged(mPreferences, unitsKey);
+        PreferenceSnapshot before = SunshinePreferences.getSnapshot(mContext);
+        assertTrue(before.isMetric());
+
+        mPreferences.edit()
+                .putString(unitsKey, mContext.getString(R.string.pref_units_imperial)).commit();
+        SunshinePreferences.onPreferenceChanged(mPreferences, unitsKey);
+        PreferenceSnapshot after = SunshinePreferences.getSnapshot(mContext);
+
+        assertNotSame(before, after);
+        assertTrue(before.isMetric());
+        assertFalse(after.isMetric());
+        assertFalse(SunshinePreferences.isMetric(mContext));
+    }
+
+    /**
+     * Keys outside the snapshot should not cause a new one to be read.
+     */
+    @Test
+    public void unrelatedKeyKeepsSnapshot() {
+        PreferenceSnapshot before = SunshinePreferences.getSnapshot(mContext);
+        SunshinePreferences.saveForecastValidators(mContext, "Seoul,KR", "\"etag\"", null);
+        SunshinePreferences.onPreferenceChanged(mPreferences, "forecast_etag_Seoul,KR");
+
+        assertSame(before, SunshinePreferences.getSnapshot(mContext));
+        SunshinePreferences.saveForecastValidators(mContext, "Seoul,KR", null, null);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.sunshine.data;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.data.database.WeatherEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(AndroidJUnit4.class)
+public class WeatherEntryCacheTest {
+
+    private static final String SEOUL = "Seoul,KR";
+
+    /**
+     * A cached row should be found by date and by id, and invalidating its day should drop it
+     * from both.
+     */
+    @Test
+    public void invalidationDropsBothKeys() {
+        WeatherEntryCache cache = new WeatherEntryCache(8);
+        WeatherEntry entry = entry(7, 100);
+        cache.put(entry, cache.getGeneration());
+
+        assertSame(entry, cache.get(SEOUL, 100));
+        assertSame(entry, cache.getById(7));
+
+        cache.invalidate(SEOUL, new long[]{100});
+        assertNull(cache.get(SEOUL, 100));
+        assertNull(cache.getById(7));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5f, cache.getHitRate(), 0);
+    }
+
+    /**
+     * A row loaded before an invalidation may be stale, so it should not be cached.
+     */
+    @Test
+    public void loadStartedBeforeInvalidationIsNotCached() {
+        WeatherEntryCache cache = new WeatherEntryCache(8);
+        long generation = cache.getGeneration();
+
+        cache.invalidate(SEOUL, new long[]{100});
+        cache.put(entry(7, 100), generation);
+
+        assertEquals(0, cache.size());
+    }
+
+    private static WeatherEntry entry(int id, long date) {
+        WeatherEntry entry = new WeatherEntry(date, 800, "Clear", 10, 20, 70, 1013, 3, 180);
+        entry.setId(id);
+        entry.setLocation(SEOUL);
+        return entry;
+    }
+}
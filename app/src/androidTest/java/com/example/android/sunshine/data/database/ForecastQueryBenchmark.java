@@ -0,0 +1,90 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.Room;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.sunshine.utilities.SunshineDateUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the list projection query with the full row query over a large table. Run it on a
+ * device and read the numbers from logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ForecastQueryBenchmark {
+
+    private static final String TAG = ForecastQueryBenchmark.class.getSimpleName();
+
+    private static final String LOCATION = "Seoul,KR";
+    private static final int ROW_COUNT = 10000;
+    private static final int ROUNDS = 10;
+
+    private AppDatabase mDb;
+    private WeatherDao mDao;
+
+    @Before
+    public void setUp() {
+        mDb = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(),
+                AppDatabase.class).build();
+        mDao = mDb.weatherDao();
+
+        /* Years of history for one location */
+        WeatherEntry[] history = new WeatherEntry[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; i++) {
+            history[i] = new WeatherEntry(i * SunshineDateUtils.DAY_IN_MILLIS, 800 + i % 4,
+                    "Clouds", 5 + i % 10, 15 + i % 10, 70, 1013, 3, 180);
+            history[i].setLocation(LOCATION);
+        }
+        mDao.bulkInsert(history);
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    @Test
+    public void benchmarkProjectionAgainstFullRows() {
+        /* Warm up both statements */
+        assertEquals(ROW_COUNT, mDao.getWeatherNow(LOCATION).size());
+        assertEquals(ROW_COUNT, mDao.getWeatherForecastsNow(LOCATION, 0).size());
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ROUNDS; i++) {
+                mDao.getWeatherNow(LOCATION);
+            }
+            long fullNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int fullAllocations = Debug.getThreadAllocCount();
+
+            Debug.resetThreadAllocCount();
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ROUNDS; i++) {
+                mDao.getWeatherForecastsNow(LOCATION, 0);
+            }
+            long listNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int listAllocations = Debug.getThreadAllocCount();
+
+            Log.i(TAG, "SELECT * over " + ROW_COUNT + " rows: "
+                    + fullNanos / ROUNDS / 1000000 + " ms, "
+                    + fullAllocations / ROUNDS + " allocations per query");
+            Log.i(TAG, "List projection over " + ROW_COUNT + " rows: "
+                    + listNanos / ROUNDS / 1000000 + " ms, "
+                    + listAllocations / ROUNDS + " allocations per query");
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.Room;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final String LOCATION = "Seoul,KR";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(TEST_DB);
+    }
+
+    /**
+     * Rows stored by version 1 should survive the migrations, belong to the preferred location
+     * and keep their ids, and other locations should then be able to store the same dates.
+     * <p>
+     * Opening the database runs the migrations, after which Room compares every table with the
+     * compiled entities and throws if one does not match.
+     */
+    @Test
+    public void migrate1To3KeepsRows() {
+        createVersion1Database(3);
+
+        AppDatabase db = Room.databaseBuilder(mContext, AppDatabase.class, TEST_DB)
+                .addMigrations(AppDatabase.buildMigration1To2(LOCATION),
+                        AppDatabase.MIGRATION_2_3)
+                .build();
+        try {
+            WeatherDao dao = db.weatherDao();
+            List<WeatherEntry> migrated = dao.getWeatherNow(LOCATION);
+            assertEquals(3, migrated.size());
+            for (WeatherEntry entry : migrated) {
+                assertEquals(entry.getDate() + 1, entry.getId());
+                assertEquals(LOCATION, entry.getLocation());
+            }
+
+            WeatherWriteResult busan = dao.upsertForecast("Busan,KR",
+                    new WeatherEntry(0, 800, "Clear", 10, 20, 70, 1013, 3, 180));
+            assertEquals(1, busan.getInserted());
+            assertEquals(4, dao.countAll());
+
+            /* The history tables of version 3 are there and empty */
+            assertEquals(0, db.weatherArchiveDao().getArchivedWeather(LOCATION, 0, 10).size());
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Creates the database the way version 1 of the app left it, without going through Room.
+     */
+    private void createVersion1Database(int days) {
+        SQLiteOpenHelper helper = new SQLiteOpenHelper(mContext, TEST_DB, null, 1) {
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS `weather` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                        + "`date` INTEGER NOT NULL, "
+                        + "`weather_id` INTEGER NOT NULL, "
+                        + "`description` TEXT, "
+                        + "`min` REAL NOT NULL, "
+                        + "`max` REAL NOT NULL, "
+                        + "`humidity` REAL NOT NULL, "
+                        + "`pressure` REAL NOT NULL, "
+                        + "`wind` REAL NOT NULL, "
+                        + "`degrees` REAL NOT NULL)");
+                db.execSQL("CREATE UNIQUE INDEX `index_weather_date` ON `weather` (`date`)");
+            }
+
+            @Override
+            public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            }
+        };
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        for (int i = 0; i < days; i++) {
+            db.execSQL("INSERT INTO `weather` VALUES (?, ?, 800, 'Clear', 10, 20, 70, 1013, 3, 180)",
+                    new Object[]{i + 1, i});
+        }
+        helper.close();
+    }
+}
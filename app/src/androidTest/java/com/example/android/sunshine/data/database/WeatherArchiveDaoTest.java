@@ -0,0 +1,92 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.Room;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.utilities.SunshineDateUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class WeatherArchiveDaoTest {
+
+    private static final long DAY = SunshineDateUtils.DAY_IN_MILLIS;
+    private static final String SEOUL = "Seoul,KR";
+
+    /* 2018-10-01, a Monday */
+    private static final long OCTOBER_FIRST = 17805 * DAY;
+
+    private AppDatabase mDb;
+    private WeatherArchiveDao mDao;
+
+    @Before
+    public void setUp() {
+        mDb = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(),
+                AppDatabase.class).build();
+        mDao = mDb.weatherArchiveDao();
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    /**
+     * Archiving days one sync at a time should build the same rollups as archiving them at once,
+     * and archiving a day again should not count it twice.
+     */
+    @Test
+    public void rollupsAreMaintainedIncrementally() {
+        /* Monday to Wednesday, then Thursday, then Wednesday again */
+        assertEquals(3, mDao.archive(Arrays.asList(day(0, 10), day(1, 14), day(2, 12))));
+        assertEquals(1, mDao.archive(Arrays.asList(day(3, 8))));
+        assertEquals(0, mDao.archive(Arrays.asList(day(2, 12))));
+
+        List<WeatherRollup> weeks = mDao.getRollups(SEOUL, WeatherRollup.PERIOD_WEEK,
+                OCTOBER_FIRST, OCTOBER_FIRST);
+        assertEquals(1, weeks.size());
+        WeatherRollup week = weeks.get(0);
+        assertEquals(4, week.getDayCount());
+        assertEquals(-2, week.getMin(), 0);
+        assertEquals(14, week.getMax(), 0);
+        assertEquals(11, week.getMeanMax(), 0);
+    }
+
+    /**
+     * Expiring the raw days should keep the monthly aggregate.
+     */
+    @Test
+    public void expiredDaysKeepTheirRollups() {
+        List<WeatherEntry> october = new ArrayList<>();
+        for (int i = 0; i < 31; i++) {
+            october.add(day(i, 10 + i % 5));
+        }
+        mDao.archive(october);
+
+        assertEquals(31, mDao.deleteArchivedWeatherBefore(OCTOBER_FIRST + 31 * DAY));
+        assertEquals(0, mDao.getArchivedWeather(SEOUL, 0, Long.MAX_VALUE).size());
+
+        List<WeatherRollup> months = mDao.getRollups(SEOUL, WeatherRollup.PERIOD_MONTH,
+                0, Long.MAX_VALUE);
+        assertEquals(1, months.size());
+        assertEquals(OCTOBER_FIRST, months.get(0).getPeriodStart());
+        assertEquals(31, months.get(0).getDayCount());
+    }
+
+    private static WeatherEntry day(int offset, double max) {
+        WeatherEntry entry = new WeatherEntry(OCTOBER_FIRST + offset * DAY, 800, "Clear",
+                max - 10, max, 70, 1013, 3, 180);
+        entry.setLocation(SEOUL);
+        return entry;
+    }
+}
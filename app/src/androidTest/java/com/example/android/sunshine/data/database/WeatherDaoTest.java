@@ -0,0 +1,136 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.Room;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.utilities.SunshineDateUtils;
+import com.example.android.sunshine.utilities.WeatherConditionCatalog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class WeatherDaoTest {
+
+    private static final long DAY = SunshineDateUtils.DAY_IN_MILLIS;
+    private static final String SEOUL = "Seoul,KR";
+    private static final String BUSAN = "Busan,KR";
+
+    private AppDatabase mDb;
+    private WeatherDao mDao;
+
+    @Before
+    public void setUp() {
+        mDb = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(),
+                AppDatabase.class).build();
+        mDao = mDb.weatherDao();
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    /**
+     * A second sync should only write the days that changed, keep the ids of existing rows,
+     * insert the new day and prune the day that has passed.
+     */
+    @Test
+    public void upsertWritesOnlyChangedDays() {
+        WeatherWriteResult first = mDao.upsertForecast(SEOUL, day(0, 10), day(1, 11), day(2, 12));
+        assertEquals(3, first.getInserted());
+
+        WeatherWriteResult second = mDao.upsertForecast(SEOUL, day(1, 11), day(2, 15), day(3, 13));
+        assertEquals(1, second.getInserted());
+        assertEquals(1, second.getUpdated());
+        assertEquals(1, second.getUnchanged());
+        assertEquals(1, second.getDeleted());
+        assertEquals(3, mDao.countAll());
+    }
+
+    /**
+     * Writing the same forecast again should not touch any row.
+     */
+    @Test
+    public void identicalForecastWritesNothing() {
+        mDao.upsertForecast(SEOUL, day(0, 10), day(1, 11));
+
+        WeatherWriteResult again = mDao.upsertForecast(SEOUL, day(0, 10), day(1, 11));
+        assertEquals(2, again.getUnchanged());
+        assertFalse(again.hasChanges());
+    }
+
+    /**
+     * Writing one location should leave the rows of another location alone.
+     */
+    @Test
+    public void locationsAreWrittenIndependently() {
+        mDao.upsertForecast(SEOUL, day(0, 10), day(1, 11));
+        WeatherWriteResult busan = mDao.upsertForecast(BUSAN, day(1, 20), day(2, 21));
+
+        assertEquals(2, busan.getInserted());
+        assertEquals(0, busan.getDeleted());
+        assertEquals(2, mDao.countAllFutureWeather(SEOUL, 0));
+        assertEquals(2, mDao.countAllFutureWeather(BUSAN, 0));
+
+        assertEquals(2, mDao.deleteWeatherNotIn(Collections.singletonList(BUSAN)));
+        assertEquals(0, mDao.countAllFutureWeather(SEOUL, 0));
+    }
+
+    /**
+     * The next rainy day should be found by the catalog's rain ids, skipping sunny and snowy
+     * days and days before the start date.
+     */
+    @Test
+    public void findsNextRainyDay() {
+        mDao.upsertForecast(SEOUL, day(0, 501, 10), day(1, 800, 11), day(2, 601, 12),
+                day(3, 300, 13), day(4, 502, 14));
+        int[] rainIds = WeatherConditionCatalog.getWeatherIds(WeatherConditionCatalog.CATEGORY_RAIN,
+                WeatherConditionCatalog.CATEGORY_DRIZZLE, WeatherConditionCatalog.CATEGORY_STORM);
+
+        assertEquals(3 * DAY, mDao.getFirstWeatherWithConditionNow(SEOUL, DAY, rainIds).getDate());
+        assertNull(mDao.getFirstWeatherWithConditionNow(BUSAN, 0, rainIds));
+    }
+
+    /**
+     * The small revisions the server makes on almost every fetch are written, but only a changed
+     * condition or a large change of the temperature counts towards the change ratio.
+     */
+    @Test
+    public void onlySignificantRevisionsCountAsChanges() {
+        mDao.upsertForecast(SEOUL, day(0, 10), day(1, 11), day(2, 12), day(3, 13));
+
+        WeatherWriteResult small = mDao.upsertForecast(SEOUL,
+                new WeatherEntry(0, 800, "Clear", 2.4, 10.3, 72, 1012, 3.4, 175),
+                new WeatherEntry(DAY, 800, "Clear", 3, 10.6, 69, 1014, 2.8, 190),
+                day(2, 12), day(3, 13));
+        assertEquals(2, small.getUpdated());
+        assertEquals(0, small.getRevised());
+        assertEquals(0f, small.getChangeRatio(), 0f);
+
+        WeatherWriteResult large = mDao.upsertForecast(SEOUL,
+                new WeatherEntry(0, 800, "Clear", 2.4, 10.3, 72, 1012, 3.4, 175),
+                new WeatherEntry(DAY, 800, "Clear", 3, 10.6, 69, 1014, 2.8, 190),
+                day(2, 501, 12), day(3, 17));
+        assertEquals(2, large.getUpdated());
+        assertEquals(2, large.getRevised());
+        assertEquals(0.5f, large.getChangeRatio(), 0f);
+    }
+
+    private static WeatherEntry day(int offset, double max) {
+        return day(offset, 800, max);
+    }
+
+    private static WeatherEntry day(int offset, int weatherId, double max) {
+        return new WeatherEntry(offset * DAY, weatherId, "Clear", max - 8, max, 70, 1013, 3, 180);
+    }
+}
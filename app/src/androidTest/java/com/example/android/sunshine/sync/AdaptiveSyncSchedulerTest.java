@@ -0,0 +1,139 @@
+package com.example.android.sunshine.sync;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class AdaptiveSyncSchedulerTest {
+
+    private static final long MIN_INTERVAL = TimeUnit.MINUTES.toMillis(60);
+    private static final long INITIAL_INTERVAL = TimeUnit.MINUTES.toMillis(180);
+    private static final long MAX_STALENESS = TimeUnit.MINUTES.toMillis(720);
+    private static final long FLEX = TimeUnit.MINUTES.toMillis(5);
+
+    private static final AdaptiveSyncScheduler.Config CONFIG =
+            new AdaptiveSyncScheduler.Config(MIN_INTERVAL, INITIAL_INTERVAL, MAX_STALENESS, FLEX);
+
+    private FakeClock mClock;
+    private FakeJobDriver mJobDriver;
+    private AdaptiveSyncScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock();
+        mJobDriver = new FakeJobDriver();
+        mScheduler = new AdaptiveSyncScheduler(CONFIG, mClock, mJobDriver, 0, 0,
+                SyncResult.UNKNOWN_VOLATILITY, 0);
+        mScheduler.start();
+    }
+
+    /**
+     * Syncs that revise much of the forecast should halve the interval, down to the minimum.
+     */
+    @Test
+    public void volatileForecastShortensInterval() {
+        assertEquals(INITIAL_INTERVAL, mJobDriver.mWindowStart);
+
+        syncAfter(INITIAL_INTERVAL, SyncResult.updated(null, 0.8f));
+        assertEquals(INITIAL_INTERVAL / 2, mJobDriver.mWindowStart);
+
+        syncAfter(INITIAL_INTERVAL / 2, SyncResult.updated(null, 0.6f));
+        assertEquals(MIN_INTERVAL, mJobDriver.mWindowStart);
+        assertEquals(MIN_INTERVAL + FLEX, mJobDriver.mWindowEnd);
+    }
+
+    /**
+     * Syncs that change nothing should lengthen the interval, but never so far that the shown
+     * forecast could get older than the staleness bound.
+     */
+    @Test
+    public void stableForecastLengthensIntervalWithinStalenessBound() {
+        long previous = mScheduler.getIntervalMillis();
+        for (int i = 0; i < 10; i++) {
+            syncAfter(mJobDriver.mWindowStart, SyncResult.notModified());
+            assertTrue(mScheduler.getIntervalMillis() >= previous);
+            assertTrue(mJobDriver.mWindowEnd <= MAX_STALENESS);
+            previous = mScheduler.getIntervalMillis();
+        }
+        assertEquals(MAX_STALENESS - FLEX, mJobDriver.mWindowStart);
+    }
+
+    /**
+     * Moderate changes should keep the interval, and an unchanged window is not rescheduled.
+     */
+    @Test
+    public void moderateChangesKeepInterval() {
+        syncAfter(INITIAL_INTERVAL, SyncResult.updated(null, 0.1f));
+
+        assertEquals(INITIAL_INTERVAL, mScheduler.getIntervalMillis());
+        assertEquals(1, mJobDriver.mScheduleCount);
+    }
+
+    /**
+     * After failed syncs the next one should still be due before the last good data turns stale.
+     */
+    @Test
+    public void failedSyncsKeepDataWithinStalenessBound() {
+        for (int i = 0; i < 10; i++) {
+            syncAfter(mJobDriver.mWindowStart, SyncResult.notModified());
+        }
+        long lastSuccess = mClock.mNow;
+
+        syncAfter(TimeUnit.MINUTES.toMillis(600), SyncResult.failed());
+
+        long sinceSuccess = mClock.mNow - lastSuccess;
+        assertEquals(MAX_STALENESS - FLEX - sinceSuccess, mJobDriver.mWindowStart);
+        assertTrue(sinceSuccess + mJobDriver.mWindowEnd <= MAX_STALENESS);
+    }
+
+    /**
+     * A scheduler restored after a restart should not replace the job an earlier run scheduled.
+     */
+    @Test
+    public void restartKeepsScheduledWindow() {
+        FakeJobDriver restartedDriver = new FakeJobDriver();
+        AdaptiveSyncScheduler restarted = new AdaptiveSyncScheduler(CONFIG, mClock,
+                restartedDriver, mScheduler.getIntervalMillis(),
+                mScheduler.getScheduledDelayMillis(), mScheduler.getVolatility(),
+                mScheduler.getLastSuccessMillis());
+        mClock.mNow += TimeUnit.MINUTES.toMillis(10);
+
+        restarted.start();
+
+        assertEquals(0, restartedDriver.mScheduleCount);
+        assertEquals(INITIAL_INTERVAL, restarted.getScheduledDelayMillis());
+    }
+
+    private void syncAfter(long delayMillis, SyncResult result) {
+        mClock.mNow += delayMillis;
+        mScheduler.onSyncFinished(result);
+    }
+
+    private static final class FakeClock implements AdaptiveSyncScheduler.Clock {
+        long mNow = TimeUnit.DAYS.toMillis(17000);
+
+        @Override
+        public long currentTimeMillis() { return mNow; }
+    }
+
+    private static final class FakeJobDriver implements AdaptiveSyncScheduler.JobDriver {
+        long mWindowStart;
+        long mWindowEnd;
+        int mScheduleCount;
+
+        @Override
+        public void schedule(long windowStartMillis, long windowEndMillis) {
+            mWindowStart = windowStartMillis;
+            mWindowEnd = windowEndMillis;
+            mScheduleCount++;
+        }
+    }
+}
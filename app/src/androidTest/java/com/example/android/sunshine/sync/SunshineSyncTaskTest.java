@@ -0,0 +1,110 @@
+package com.example.android.sunshine.sync;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.utilities.CancellationToken;
+import com.example.android.sunshine.utilities.ForecastResponseCache;
+import com.example.android.sunshine.utilities.LocalForecastServer;
+import com.example.android.sunshine.utilities.WeatherHttpClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the forecast handler of {@link SunshineSyncTask} against a local server.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SunshineSyncTaskTest {
+
+    private static final String LOCATION = "Seoul,KR";
+    private static final String ETAG = "\"v1\"";
+
+    private LocalForecastServer mServer;
+    private WeatherHttpClient mClient;
+    private File mCacheDirectory;
+    private ForecastResponseCache mResponseCache;
+
+    @Before
+    public void setUp() throws Exception {
+        StringBuilder builder = new StringBuilder("{\"cod\":\"200\",\"list\":[");
+        for (int i = 0; i < 3; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"dt\":").append(1500000000 + i * 86400)
+                    .append(",\"temp\":{\"day\":20.5,\"min\":15.1,\"max\":24.9},")
+                    .append("\"pressure\":1013.2,\"humidity\":81,")
+                    .append("\"weather\":[{\"id\":800,\"main\":\"Clear\"}],")
+                    .append("\"speed\":3.1,\"deg\":210}");
+        }
+
+        mServer = new LocalForecastServer();
+        mServer.setBody(builder.append("]}").toString());
+        mServer.setETag(ETAG);
+        mClient = new WeatherHttpClient(2000, 2000);
+
+        mCacheDirectory = new File(InstrumentationRegistry.getTargetContext().getCacheDir(),
+                "sync-task-test");
+        mResponseCache = new ForecastResponseCache(mCacheDirectory, 64 * 1024, 60000);
+        mResponseCache.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.close();
+        File[] files = mCacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCacheDirectory.delete();
+    }
+
+    /**
+     * A fresh body is parsed into a forecast that carries its validators, and is cached.
+     */
+    @Test
+    public void modifiedForecastIsParsedAndCached() throws Exception {
+        LocationForecast forecast = fetch(Collections.<String, String>emptyMap());
+
+        assertEquals(SyncResult.Status.UPDATED, forecast.getStatus());
+        assertEquals(3, forecast.getEntries().length);
+        assertEquals(ETAG, forecast.getETag());
+        assertTrue(mResponseCache.getSize() > 0);
+    }
+
+    /**
+     * A 304 is not parsed and has no entries, so the write pass, which only writes forecasts
+     * with entries, leaves the DB alone. Nothing is cached either.
+     */
+    @Test
+    public void notModifiedSkipsParseAndWrite() throws Exception {
+        /* Parsing this would fail the fetch */
+        mServer.setBody("not a forecast");
+
+        LocationForecast forecast = fetch(Collections.singletonMap("If-None-Match", ETAG));
+
+        assertEquals(1, mServer.getNotModifiedCount());
+        assertEquals(SyncResult.Status.NOT_MODIFIED, forecast.getStatus());
+        assertFalse(forecast.hasEntries());
+        assertEquals(0, mResponseCache.getSize());
+    }
+
+    private LocationForecast fetch(Map<String, String> headers) throws Exception {
+        URL url = mServer.url("/forecast");
+        return mClient.get(url, headers, (response, body) -> SunshineSyncTask.readForecast(
+                mResponseCache, ForecastResponseCache.keyFor(url), LOCATION, response, body,
+                CancellationToken.create()));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.android.sunshine.sync;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class SyncCoordinatorTest {
+
+    private static final int TRIGGER_COUNT = 16;
+
+    /**
+     * Many simultaneous triggers for the same location should result in exactly one fetch, with
+     * one leader and every other caller sharing the leader's result.
+     */
+    @Test
+    public void simultaneousTriggersFetchOnce() throws Exception {
+        final SyncCoordinator coordinator = new SyncCoordinator();
+        final AtomicInteger fetchCount = new AtomicInteger();
+        final CountDownLatch startGate = new CountDownLatch(1);
+        final CountDownLatch arrived = new CountDownLatch(TRIGGER_COUNT);
+        final List<Thread> callers = Collections.synchronizedList(new ArrayList<>());
+        final Object sharedResult = new Object();
+
+        final Callable<Object> fetch = () -> {
+            fetchCount.incrementAndGet();
+            /*
+             * Stay in flight until every other trigger has joined this run: it has passed the
+             * gate, and is parked waiting for the result.
+             */
+            assertTrue(arrived.await(5, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 5000;
+            for (Thread caller : callers) {
+                if (caller == Thread.currentThread()) continue;
+                while (caller.getState() != Thread.State.WAITING) {
+                    assertTrue(System.currentTimeMillis() < deadline);
+                    Thread.sleep(1);
+                }
+            }
+            return sharedResult;
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(TRIGGER_COUNT);
+        List<Future<SyncCoordinator.Outcome<Object>>> outcomes = new ArrayList<>();
+        for (int i = 0; i < TRIGGER_COUNT; i++) {
+            outcomes.add(pool.submit(() -> {
+                startGate.await();
+                callers.add(Thread.currentThread());
+                arrived.countDown();
+                return coordinator.execute("Seoul,KR", fetch);
+            }));
+        }
+        startGate.countDown();
+
+        int leaders = 0;
+        for (Future<SyncCoordinator.Outcome<Object>> future : outcomes) {
+            SyncCoordinator.Outcome<Object> outcome = future.get(10, TimeUnit.SECONDS);
+            assertSame(sharedResult, outcome.getValue());
+            if (outcome.isLeader()) leaders++;
+        }
+        pool.shutdown();
+
+        assertEquals(1, fetchCount.get());
+        assertEquals(1, leaders);
+        assertFalse(coordinator.isInFlight("Seoul,KR"));
+    }
+
+    /**
+     * Once a sync has finished, the next trigger for the key should start a new one.
+     */
+    @Test
+    public void sequentialTriggersFetchEachTime() throws Exception {
+        SyncCoordinator coordinator = new SyncCoordinator();
+        AtomicInteger fetchCount = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            SyncCoordinator.Outcome<Integer> outcome =
+                    coordinator.execute("Seoul,KR", fetchCount::incrementAndGet);
+            assertTrue(outcome.isLeader());
+        }
+
+        assertEquals(3, fetchCount.get());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.sunshine.sync;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class SyncTelemetryTest {
+
+    /**
+     * Once the buffer is full, the oldest trace should make room, and traces come back newest
+     * first.
+     */
+    @Test
+    public void bufferKeepsMostRecentTraces() {
+        SyncTelemetry telemetry = new SyncTelemetry(3);
+        for (int i = 1; i <= 5; i++) {
+            telemetry.record(trace(i));
+        }
+
+        List<SyncTrace> traces = telemetry.getTraces();
+        assertEquals(3, traces.size());
+        assertEquals(5, traces.get(0).getStartMillis());
+        assertEquals(4, traces.get(1).getStartMillis());
+        assertEquals(3, traces.get(2).getStartMillis());
+    }
+
+    /**
+     * Percentiles should use the nearest rank over the buffered traces.
+     */
+    @Test
+    public void summaryReportsPercentiles() {
+        SyncTelemetry telemetry = new SyncTelemetry(100);
+        /* Write times 1..100 in shuffled order */
+        for (int i = 0; i < 100; i++) {
+            telemetry.record(trace((i * 37) % 100 + 1));
+        }
+
+        SyncTelemetry.Summary summary = telemetry.getSummary(SyncTrace.Stage.WRITE);
+        assertEquals(100, summary.getCount());
+        assertEquals(50, summary.getPercentileNanos(50));
+        assertEquals(90, summary.getPercentileNanos(90));
+        assertEquals(99, summary.getPercentileNanos(99));
+        assertEquals(100, summary.getMaxNanos());
+        assertEquals(0, telemetry.getSummary(SyncTrace.Stage.NOTIFY).getMaxNanos());
+    }
+
+    /**
+     * A trace whose start time and write time are both the given value.
+     */
+    private static SyncTrace trace(long value) {
+        SyncTrace trace = new SyncTrace(value);
+        trace.setWrite(value, 1);
+        return trace.finish(SyncResult.Status.UPDATED);
+    }
+}
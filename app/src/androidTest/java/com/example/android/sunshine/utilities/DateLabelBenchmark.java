@@ -0,0 +1,102 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the cached date labels with formatting every label, over the days of a forecast
+ * list. Run it on a device and read the numbers from logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DateLabelBenchmark {
+
+    private static final String TAG = DateLabelBenchmark.class.getSimpleName();
+
+    private static final int DAYS = 14;
+    private static final int ROUNDS = 100;
+
+    private Context mContext;
+    private long[] mDates;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        long today = SunshineDateUtils.normalizeDate(
+                SunshineDateUtils.getUTCDateFromLocal(System.currentTimeMillis()));
+        mDates = new long[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            mDates[i] = today + i * SunshineDateUtils.DAY_IN_MILLIS;
+        }
+    }
+
+    /**
+     * The cache should return the same labels as formatting them.
+     */
+    @Test
+    public void cachedLabelsMatchFormattedLabels() {
+        DateLabelCache cache = new DateLabelCache(mContext);
+        for (long date : mDates) {
+            for (boolean full : new boolean[]{false, true}) {
+                assertEquals(format(date, full), cache.getLabel(date, full));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkCachedAgainstFormatted() {
+        DateLabelCache cache = new DateLabelCache(mContext);
+        /* Warm up both paths */
+        for (long date : mDates) {
+            cache.getLabel(date, false);
+            format(date, false);
+        }
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (long date : mDates) {
+                    format(date, false);
+                }
+            }
+            long formattedNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int formattedAllocations = Debug.getThreadAllocCount();
+
+            Debug.resetThreadAllocCount();
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (long date : mDates) {
+                    cache.getLabel(date, false);
+                }
+            }
+            long cachedNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int cachedAllocations = Debug.getThreadAllocCount();
+
+            Log.i(TAG, "Formatted labels for " + DAYS + " days: "
+                    + formattedNanos / ROUNDS / 1000 + " us, "
+                    + formattedAllocations / ROUNDS + " allocations per list");
+            Log.i(TAG, "Cached labels for " + DAYS + " days: "
+                    + cachedNanos / ROUNDS / 1000 + " us, "
+                    + cachedAllocations / ROUNDS + " allocations per list");
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    /* What getFriendlyDateString did before the cache: find today, then format */
+    private String format(long date, boolean full) {
+        long currentDayNumber = SunshineDateUtils.getDayNumber(System.currentTimeMillis());
+        return SunshineDateUtils.formatFriendlyDateString(mContext, date, full, currentDayNumber);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.android.sunshine.utilities;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class ForecastResponseCacheTest {
+
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    /* Every body is 300 bytes, and an entry adds a 12 byte header. Two entries fit, three do not */
+    private static final int BODY_LENGTH = 300;
+    private static final long MAX_BYTES = 700;
+
+    private File mDirectory;
+    private FakeClock mClock;
+    private ForecastResponseCache mCache;
+
+    @Before
+    public void setUp() {
+        mDirectory = new File(InstrumentationRegistry.getTargetContext().getCacheDir(),
+                "forecast-response-cache-test");
+        deleteDirectory();
+        mClock = new FakeClock();
+        mCache = newCache();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDirectory();
+    }
+
+    /**
+     * A lookup before the entry is stored is a miss, the same lookup afterwards a hit that
+     * returns the stored body and validators.
+     */
+    @Test
+    public void countsHitsAndMisses() throws IOException {
+        assertNull(mCache.get("a"));
+        store(mCache, "a", 'a');
+
+        ForecastResponseCache.CachedResponse response = mCache.get("a");
+        assertNotNull(response);
+        try {
+            assertEquals(body('a'), readFully(response.getBody()));
+            assertEquals("\"etag-a\"", response.getETag());
+            assertNull(response.getLastModified());
+        } finally {
+            response.close();
+        }
+
+        assertEquals(1, mCache.getHitCount());
+        assertEquals(1, mCache.getMissCount());
+        assertEquals(0, mCache.getEvictionCount());
+    }
+
+    /**
+     * An entry is served until its time to live has passed, and is then dropped.
+     */
+    @Test
+    public void expiresAfterTtl() throws IOException {
+        store(mCache, "a", 'a');
+
+        mClock.mNow += TTL - 1;
+        assertHit(mCache, "a");
+
+        mClock.mNow += 1;
+        assertNull(mCache.get("a"));
+        assertEquals(0, mCache.getSize());
+        assertEquals(1, mCache.getMissCount());
+    }
+
+    /**
+     * Going over the byte budget evicts the entry that was used least recently, not the one
+     * that was written first.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        store(mCache, "a", 'a');
+        store(mCache, "b", 'b');
+        assertHit(mCache, "a");
+
+        store(mCache, "c", 'c');
+
+        assertEquals(1, mCache.getEvictionCount());
+        assertNull(mCache.get("b"));
+        assertHit(mCache, "a");
+        assertHit(mCache, "c");
+        assertEquals(2 * (BODY_LENGTH + 12), mCache.getSize());
+    }
+
+    /**
+     * The recency order is read back from the index file by a new instance.
+     */
+    @Test
+    public void recencySurvivesRestart() throws IOException {
+        store(mCache, "a", 'a');
+        store(mCache, "b", 'b');
+        assertHit(mCache, "a");
+
+        ForecastResponseCache restarted = newCache();
+        store(restarted, "c", 'c');
+
+        assertEquals(1, restarted.getEvictionCount());
+        assertNull(restarted.get("b"));
+        assertHit(restarted, "a");
+    }
+
+    private ForecastResponseCache newCache() {
+        return new ForecastResponseCache(mDirectory, MAX_BYTES, TTL, mClock);
+    }
+
+    private static void store(ForecastResponseCache cache, String key, char fill)
+            throws IOException {
+        ForecastResponseCache.Editor editor = cache.edit(key, "\"etag-" + key + "\"", null);
+        assertNotNull(editor);
+        /* Nothing reads the copy, commit() copies the rest of the source */
+        editor.copyOf(new StringReader(body(fill)));
+        editor.commit();
+    }
+
+    private static void assertHit(ForecastResponseCache cache, String key) throws IOException {
+        ForecastResponseCache.CachedResponse response = cache.get(key);
+        assertNotNull(key, response);
+        response.close();
+    }
+
+    private static String body(char fill) {
+        char[] body = new char[BODY_LENGTH];
+        Arrays.fill(body, fill);
+        return new String(body);
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[512];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+    }
+
+    private void deleteDirectory() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    private static final class FakeClock implements ForecastResponseCache.Clock {
+        long mNow = TimeUnit.DAYS.toMillis(17000);
+
+        @Override
+        public long currentTimeMillis() { return mNow; }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.android.sunshine.utilities;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A tiny HTTP/1.1 server that stands in for the weather server in tests. It keeps connections
+ * alive, gzips the body when the client asks for it and counts connections, requests and the
+ * number of body bytes written to the socket. Once it has an ETag, it sends it with the body and
+ * answers a request whose If-None-Match matches it with an empty 304. Like some real servers,
+ * that 304 repeats the Content-Encoding the body would have had.
+ */
+public class LocalForecastServer implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ServerSocket mServerSocket;
+    private final AtomicInteger mConnectionCount = new AtomicInteger();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicLong mBodyBytesWritten = new AtomicLong();
+    private final AtomicInteger mNotModifiedCount = new AtomicInteger();
+
+    private volatile String mBody = "{}";
+    private volatile long mResponseDelayMillis;
+    private volatile String mETag;
+    /* Lower-cased header name -> value of the last request */
+    private volatile Map<String, String> mLastRequestHeaders = new HashMap<>();
+
+    public LocalForecastServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptThread = new Thread(this::acceptLoop, "local-forecast-server");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + mServerSocket.getLocalPort() + path);
+    }
+
+    public void setBody(String body) { mBody = body; }
+
+    /** Validator of the current body, null to send none and never answer 304 */
+    public void setETag(String eTag) { mETag = eTag; }
+
+    /** Delays every response by the given time, to simulate a slow origin */
+    public void setResponseDelayMillis(long delayMillis) { mResponseDelayMillis = delayMillis; }
+
+    public int getConnectionCount() { return mConnectionCount.get(); }
+
+    public int getRequestCount() { return mRequestCount.get(); }
+
+    public long getBodyBytesWritten() { return mBodyBytesWritten.get(); }
+
+    public int getNotModifiedCount() { return mNotModifiedCount.get(); }
+
+    /** Value of a header of the last request, ignoring case, or null if it had none */
+    public String getLastRequestHeader(String name) {
+        return mLastRequestHeaders.get(name.toLowerCase(Locale.US));
+    }
+
+    @Override
+    public void close() throws IOException {
+        mServerSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!mServerSocket.isClosed()) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                mConnectionCount.incrementAndGet();
+                Thread worker = new Thread(() -> serve(socket), "local-forecast-connection");
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), UTF_8));
+            OutputStream out = socket.getOutputStream();
+            String requestLine;
+            while ((requestLine = in.readLine()) != null) {
+                if (requestLine.isEmpty()) continue;
+                Map<String, String> headers = new HashMap<>();
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US),
+                            line.substring(colon + 1).trim());
+                }
+                mRequestCount.incrementAndGet();
+                mLastRequestHeaders = headers;
+                if (mResponseDelayMillis > 0) {
+                    Thread.sleep(mResponseDelayMillis);
+                }
+                respond(out, headers);
+            }
+        } catch (IOException | InterruptedException e) {
+            // Client went away
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void respond(OutputStream out, Map<String, String> requestHeaders) throws IOException {
+        String acceptEncoding = requestHeaders.get("accept-encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        String eTag = mETag;
+        if (eTag != null && eTag.equals(requestHeaders.get("if-none-match"))) {
+            StringBuilder head = new StringBuilder()
+                    .append("HTTP/1.1 304 Not Modified\r\n")
+                    .append("ETag: ").append(eTag).append("\r\n")
+                    .append("Connection: keep-alive\r\n");
+            if (gzip) {
+                head.append("Content-Encoding: gzip\r\n");
+            }
+            head.append("\r\n");
+            out.write(head.toString().getBytes(UTF_8));
+            out.flush();
+            mNotModifiedCount.incrementAndGet();
+            return;
+        }
+
+        byte[] body = mBody.getBytes(UTF_8);
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            GZIPOutputStream gzipOut = new GZIPOutputStream(compressed);
+            gzipOut.write(body);
+            gzipOut.close();
+            body = compressed.toByteArray();
+        }
+
+        StringBuilder head = new StringBuilder()
+                .append("HTTP/1.1 200 OK\r\n")
+                .append("Content-Type: application/json; charset=utf-8\r\n")
+                .append("Content-Length: ").append(body.length).append("\r\n")
+                .append("Connection: keep-alive\r\n");
+        if (gzip) {
+            head.append("Content-Encoding: gzip\r\n");
+        }
+        if (eTag != null) {
+            head.append("ETag: ").append(eTag).append("\r\n");
+        }
+        head.append("\r\n");
+
+        out.write(head.toString().getBytes(UTF_8));
+        out.write(body);
+        out.flush();
+        mBodyBytesWritten.addAndGet(body.length);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(AndroidJUnit4.class)
+public class NotificationUtilsTest {
+
+    /**
+     * The large icon of a condition should be decoded and scaled once, at the notification's
+     * icon size.
+     */
+    @Test
+    public void largeIconIsScaledOnceAndCached() {
+        Resources resources = InstrumentationRegistry.getTargetContext().getResources();
+
+        Bitmap clear = NotificationUtils.getLargeIcon(resources, R.drawable.art_clear);
+        assertSame(clear, NotificationUtils.getLargeIcon(resources, R.drawable.art_clear));
+        assertNotSame(clear, NotificationUtils.getLargeIcon(resources, R.drawable.art_rain));
+
+        assertEquals(resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width),
+                clear.getWidth());
+        assertEquals(resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height),
+                clear.getHeight());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.sunshine.data.database.WeatherEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the streaming forecast parser against the DOM parser on recorded payloads, and compares
+ * their cost.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OpenWeatherJsonParserTest {
+
+    private static final String TAG = OpenWeatherJsonParserTest.class.getSimpleName();
+
+    private static final String FORECAST_PAYLOAD = "forecast_seoul.json";
+    private static final String NOT_FOUND_PAYLOAD = "forecast_not_found.json";
+
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int BENCHMARK_ROUNDS = 200;
+
+    private Context mTargetContext;
+    private String mForecastJson;
+
+    @Before
+    public void setUp() throws Exception {
+        mTargetContext = InstrumentationRegistry.getTargetContext();
+        mForecastJson = readAsset(FORECAST_PAYLOAD);
+    }
+
+    /**
+     * Both parsers should produce the same entries, field by field, for a recorded payload that
+     * also carries fields Sunshine does not use.
+     */
+    @Test
+    public void streamingParserMatchesDomParser() throws Exception {
+        WeatherEntry[] expected =
+                OpenWeatherJsonUtils.getFullWeatherStringsFromJson(mTargetContext, mForecastJson);
+        WeatherEntry[] actual =
+                OpenWeatherJsonUtils.getWeatherEntriesFromJson(new StringReader(mForecastJson));
+
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getDate(), actual[i].getDate());
+            assertEquals(expected[i].getWeatherId(), actual[i].getWeatherId());
+            assertEquals(expected[i].getDescription(), actual[i].getDescription());
+            assertEquals(expected[i].getMin(), actual[i].getMin(), 0);
+            assertEquals(expected[i].getMax(), actual[i].getMax(), 0);
+            assertEquals(expected[i].getHumidity(), actual[i].getHumidity(), 0);
+            assertEquals(expected[i].getPressure(), actual[i].getPressure(), 0);
+            assertEquals(expected[i].getWindSpeed(), actual[i].getWindSpeed(), 0);
+            assertEquals(expected[i].getWindDirection(), actual[i].getWindDirection(), 0);
+        }
+    }
+
+    /**
+     * An error payload should make both parsers return null.
+     */
+    @Test
+    public void errorCodeReturnsNull() throws Exception {
+        String json = readAsset(NOT_FOUND_PAYLOAD);
+
+        assertNull(OpenWeatherJsonUtils.getFullWeatherStringsFromJson(mTargetContext, json));
+        assertNull(OpenWeatherJsonUtils.getWeatherEntriesFromJson(new StringReader(json)));
+    }
+
+    /**
+     * Parses the recorded payload many times with each parser and logs the time and the number
+     * of allocations per parse. Run it on a device and read the numbers from logcat.
+     */
+    @Test
+    public void benchmarkDomAgainstStreaming() throws Exception {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            OpenWeatherJsonUtils.getFullWeatherStringsFromJson(mTargetContext, mForecastJson);
+            OpenWeatherJsonUtils.getWeatherEntriesFromJson(new StringReader(mForecastJson));
+        }
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+                OpenWeatherJsonUtils.getFullWeatherStringsFromJson(mTargetContext, mForecastJson);
+            }
+            long domNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int domAllocations = Debug.getThreadAllocCount();
+
+            Debug.resetThreadAllocCount();
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+                OpenWeatherJsonUtils.getWeatherEntriesFromJson(new StringReader(mForecastJson));
+            }
+            long streamNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int streamAllocations = Debug.getThreadAllocCount();
+
+            Log.i(TAG, "DOM parser: " + domNanos / BENCHMARK_ROUNDS / 1000 + " us, "
+                    + domAllocations / BENCHMARK_ROUNDS + " allocations per parse");
+            Log.i(TAG, "Streaming parser: " + streamNanos / BENCHMARK_ROUNDS / 1000 + " us, "
+                    + streamAllocations / BENCHMARK_ROUNDS + " allocations per parse");
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private static String readAsset(String name) throws IOException {
+        /* Payloads live in the test APK, not in the app under test */
+        InputStream in = InstrumentationRegistry.getContext().getAssets().open(name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
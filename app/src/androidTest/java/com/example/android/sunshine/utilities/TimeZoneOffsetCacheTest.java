@@ -0,0 +1,106 @@
+package com.example.android.sunshine.utilities;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the cached offsets with {@link TimeZone#getOffset(long)} around DST transitions.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TimeZoneOffsetCacheTest {
+
+    private static final long MINUTE = SunshineDateUtils.MINUTE_IN_MILLIS;
+    private static final long HOUR = SunshineDateUtils.HOUR_IN_MILLIS;
+    private static final long DAY = SunshineDateUtils.DAY_IN_MILLIS;
+
+    /* Zones with a DST change on the given UTC day of 2018 */
+    private static final Object[][] TRANSITIONS = {
+            /* Spring forward and fall back */
+            {"America/New_York", 2, 11},
+            {"America/New_York", 10, 4},
+            {"Europe/Berlin", 2, 25},
+            {"Europe/Berlin", 9, 28},
+            /* Southern hemisphere, DST ends in April */
+            {"Australia/Sydney", 3, 1},
+            {"Australia/Sydney", 9, 6},
+            /* A half hour change */
+            {"Australia/Lord_Howe", 3, 1},
+    };
+
+    /**
+     * Every minute of the two days around a transition, walked forwards.
+     */
+    @Test
+    public void matchesZoneAcrossTransitionsForwards() {
+        for (Object[] transition : TRANSITIONS) {
+            TimeZone zone = TimeZone.getTimeZone((String) transition[0]);
+            TimeZoneOffsetCache cache = new TimeZoneOffsetCache(zone);
+            long day = utcDay((Integer) transition[1], (Integer) transition[2]);
+
+            for (long t = day - DAY; t < day + DAY; t += MINUTE) {
+                assertEquals(zone.getID() + " at " + t, zone.getOffset(t), cache.getOffset(t));
+            }
+        }
+    }
+
+    /**
+     * The same minutes walked backwards, which extends the cached interval the other way.
+     */
+    @Test
+    public void matchesZoneAcrossTransitionsBackwards() {
+        for (Object[] transition : TRANSITIONS) {
+            TimeZone zone = TimeZone.getTimeZone((String) transition[0]);
+            TimeZoneOffsetCache cache = new TimeZoneOffsetCache(zone);
+            long day = utcDay((Integer) transition[1], (Integer) transition[2]);
+
+            for (long t = day + DAY; t > day - DAY; t -= MINUTE) {
+                assertEquals(zone.getID() + " at " + t, zone.getOffset(t), cache.getOffset(t));
+            }
+        }
+    }
+
+    /**
+     * The millisecond before and the millisecond of a transition should get different offsets.
+     */
+    @Test
+    public void switchesAtTheExactInstant() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        TimeZoneOffsetCache cache = new TimeZoneOffsetCache(zone);
+        /* 2018-03-11 02:00 EST is 07:00 UTC */
+        long transition = utcDay(2, 11) + 7 * HOUR;
+
+        assertEquals(-5 * HOUR, cache.getOffset(transition - 1));
+        assertEquals(-4 * HOUR, cache.getOffset(transition));
+        assertEquals(-5 * HOUR, cache.getOffset(transition - 1));
+    }
+
+    /**
+     * Lookups within a day without a transition should ask the zone once.
+     */
+    @Test
+    public void reusesIntervalWithinADay() {
+        TimeZoneOffsetCache cache = new TimeZoneOffsetCache(TimeZone.getTimeZone("Asia/Kolkata"));
+        long day = utcDay(5, 1);
+        for (long t = day; t < day + DAY; t += HOUR) {
+            assertEquals(5 * HOUR + 30 * MINUTE, cache.getOffset(t));
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(23, cache.getHitCount());
+    }
+
+    /* Midnight UTC of a day in 2018 */
+    private static long utcDay(int month, int dayOfMonth) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(2018, month, dayOfMonth);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.android.sunshine.utilities;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class WeatherConditionCatalogTest {
+
+    /**
+     * The tables should keep the art the switch ladders picked, including the odd cases.
+     */
+    @Test
+    public void keepsArtOfTheLadders() {
+        /* 761 is dust, it was caught by the fog range before its storm case */
+        assertEquals(R.drawable.ic_fog, WeatherConditionCatalog.getSmallArtResId(761));
+        /* Freezing rain shows snow */
+        assertEquals(R.drawable.art_snow, WeatherConditionCatalog.getLargeArtResId(511));
+        assertEquals(R.drawable.ic_clear, WeatherConditionCatalog.getSmallArtResId(955));
+        assertEquals(R.drawable.art_storm, WeatherConditionCatalog.getLargeArtResId(960));
+        /* Ids in a range without their own string still have art */
+        assertEquals(R.drawable.ic_rain, WeatherConditionCatalog.getSmallArtResId(521));
+        assertEquals(0, WeatherConditionCatalog.getDescriptionResId(521));
+    }
+
+    /**
+     * Ids outside the catalog should map to nothing rather than fail.
+     */
+    @Test
+    public void unknownIdsMapToNothing() {
+        for (int weatherId : new int[]{-1, 0, 199, 450, 999, Integer.MAX_VALUE}) {
+            assertEquals(0, WeatherConditionCatalog.getDescriptionResId(weatherId));
+            assertEquals(0, WeatherConditionCatalog.getSmallArtResId(weatherId));
+            assertEquals(WeatherConditionCatalog.CATEGORY_UNKNOWN,
+                    WeatherConditionCatalog.getCategory(weatherId));
+        }
+    }
+
+    @Test
+    public void listsIdsOfCategories() {
+        assertArrayEquals(new int[]{800, 801, 802, 803, 804}, WeatherConditionCatalog.getWeatherIds(
+                WeatherConditionCatalog.CATEGORY_CLEAR, WeatherConditionCatalog.CATEGORY_CLOUDS));
+        assertEquals(WeatherConditionCatalog.CATEGORY_RAIN, WeatherConditionCatalog.getCategory(511));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(AndroidJUnit4.class)
+public class WeatherFormatterTest {
+
+    /**
+     * Table lookups should give what formatting each value gave, in both unit systems.
+     */
+    @Test
+    public void tableMatchesFormat() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        String format = context.getString(R.string.format_temperature);
+        WeatherFormatter metric = WeatherFormatter.getInstance(context, true);
+        WeatherFormatter imperial = WeatherFormatter.getInstance(context, false);
+
+        for (int tenths = -600; tenths <= 600; tenths++) {
+            double celsius = tenths / 10.0;
+            /* Formatting prints -0 for small negatives, the table does not */
+            if (Math.round(Math.abs(celsius)) != 0) {
+                assertEquals(String.format(format, celsius), metric.formatTemperature(celsius));
+            }
+            double fahrenheit = celsius * 1.8 + 32;
+            if (Math.round(Math.abs(fahrenheit)) != 0) {
+                assertEquals(String.format(format, fahrenheit),
+                        imperial.formatTemperature(celsius));
+            }
+        }
+    }
+
+    /**
+     * In-range values should come from the table, the same String every time.
+     */
+    @Test
+    public void reusesTableStrings() {
+        WeatherFormatter formatter =
+                WeatherFormatter.getInstance(InstrumentationRegistry.getTargetContext(), true);
+        assertSame(formatter.formatTemperature(21.2), formatter.formatTemperature(20.7));
+    }
+
+    /**
+     * Values outside the table should still be formatted.
+     */
+    @Test
+    public void formatsOutOfRange() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        String format = context.getString(R.string.format_temperature);
+        WeatherFormatter formatter = WeatherFormatter.getInstance(context, true);
+
+        assertEquals(String.format(format, 1000.0), formatter.formatTemperature(1000));
+        assertEquals(String.format(format, -273.0), formatter.formatTemperature(-273));
+    }
+
+    @Test
+    public void mapsCompassPoints() {
+        assertEquals("N", WeatherFormatter.getCompassDirection(0));
+        assertEquals("N", WeatherFormatter.getCompassDirection(22.4f));
+        assertEquals("NE", WeatherFormatter.getCompassDirection(22.5f));
+        assertEquals("SE", WeatherFormatter.getCompassDirection(150));
+        assertEquals("W", WeatherFormatter.getCompassDirection(270));
+        assertEquals("NW", WeatherFormatter.getCompassDirection(337.4f));
+        assertEquals("N", WeatherFormatter.getCompassDirection(337.5f));
+        assertEquals("N", WeatherFormatter.getCompassDirection(400));
+        assertEquals("Unknown", WeatherFormatter.getCompassDirection(Float.NaN));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.android.sunshine.utilities;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.data.database.WeatherEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class WeatherHttpClientTest {
+
+    /* A stopped request must have let go of everything by then */
+    private static final long STOP_BOUND_MILLIS = 1000;
+
+    private LocalForecastServer mServer;
+    private WeatherHttpClient mClient;
+    private String mForecastBody;
+
+    @Before
+    public void setUp() throws Exception {
+        /* Something shaped like a 14 day forecast, so compression has realistic input */
+        StringBuilder builder = new StringBuilder("{\"cod\":\"200\",\"list\":[");
+        for (int i = 0; i < 14; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"dt\":").append(1500000000 + i * 86400)
+                    .append(",\"temp\":{\"day\":20.5,\"min\":15.1,\"max\":24.9},")
+                    .append("\"pressure\":1013.2,\"humidity\":81,")
+                    .append("\"weather\":[{\"id\":800,\"main\":\"Clear\"}],")
+                    .append("\"speed\":3.1,\"deg\":210}");
+        }
+        mForecastBody = builder.append("]}").toString();
+
+        mServer = new LocalForecastServer();
+        mServer.setBody(mForecastBody);
+        mClient = new WeatherHttpClient(2000, 2000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.close();
+    }
+
+    /**
+     * Consecutive requests to the same server should travel over a single kept-alive connection.
+     */
+    @Test
+    public void consecutiveRequestsReuseConnection() throws Exception {
+        URL url = mServer.url("/weather");
+        for (int i = 0; i < 5; i++) {
+            WeatherHttpClient.Response response = mClient.get(url);
+            assertEquals(200, response.getCode());
+            assertEquals(mForecastBody, response.getBody());
+        }
+
+        assertEquals(5, mServer.getRequestCount());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    /**
+     * A gzip response should be decoded transparently and move fewer bytes than the plain one.
+     */
+    @Test
+    public void gzipResponseTransfersFewerBytes() throws Exception {
+        URL url = mServer.url("/weather");
+
+        WeatherHttpClient.Response compressed = mClient.get(url);
+        WeatherHttpClient.Response plain = mClient.get(url,
+                Collections.singletonMap("Accept-Encoding", "identity"));
+
+        assertEquals(mForecastBody, compressed.getBody());
+        assertEquals(mForecastBody, plain.getBody());
+        assertTrue("gzip " + compressed.getWireBytes() + " vs plain " + plain.getWireBytes(),
+                compressed.getWireBytes() < plain.getWireBytes());
+        assertEquals(mServer.getBodyBytesWritten(),
+                compressed.getWireBytes() + plain.getWireBytes());
+    }
+
+    /**
+     * A streamed body should reach the parser directly, and the connection should still be
+     * reused afterwards.
+     */
+    @Test
+    public void streamedBodyIsParsedInPlace() throws Exception {
+        URL url = mServer.url("/weather");
+        for (int i = 0; i < 2; i++) {
+            WeatherEntry[] entries = mClient.get(url, Collections.<String, String>emptyMap(),
+                    (response, body) -> {
+                        assertEquals(200, response.getCode());
+                        assertNull(response.getBody());
+                        return OpenWeatherJsonUtils.getWeatherEntriesFromJson(body);
+                    });
+            assertEquals(14, entries.length);
+        }
+
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    /**
+     * Validators passed by the caller should reach the server, and a matching ETag should be
+     * answered with an empty 304 over the same connection.
+     */
+    @Test
+    public void matchingValidatorGetsNotModified() throws Exception {
+        mServer.setETag("\"v1\"");
+        URL url = mServer.url("/weather");
+
+        WeatherHttpClient.Response first = mClient.get(url);
+        assertEquals(200, first.getCode());
+        assertEquals("\"v1\"", first.getHeader("ETag"));
+        assertNull(mServer.getLastRequestHeader("If-None-Match"));
+
+        long bodyBytes = mServer.getBodyBytesWritten();
+        WeatherHttpClient.Response second = mClient.get(url,
+                Collections.singletonMap("If-None-Match", first.getHeader("ETag")));
+        assertEquals(304, second.getCode());
+        assertNull(second.getBody());
+        assertEquals("\"v1\"", mServer.getLastRequestHeader("If-None-Match"));
+        assertEquals(1, mServer.getNotModifiedCount());
+        assertEquals(bodyBytes, mServer.getBodyBytesWritten());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    /**
+     * A 304 that names gzip as its Content-Encoding has no body to decode, and must not fail.
+     * The connection should still be reused after it.
+     */
+    @Test
+    public void encodedNotModifiedIsNotDecoded() throws Exception {
+        mServer.setETag("\"v1\"");
+        URL url = mServer.url("/weather");
+
+        for (int i = 0; i < 2; i++) {
+            WeatherHttpClient.Response response = mClient.get(url,
+                    Collections.singletonMap("If-None-Match", "\"v1\""));
+            assertEquals(304, response.getCode());
+            assertEquals("gzip", response.getHeader("Content-Encoding"));
+            assertNull(response.getBody());
+        }
+
+        assertEquals(2, mServer.getNotModifiedCount());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    /**
+     * A body larger than the client's limit should fail the request instead of being read.
+     */
+    @Test(expected = WeatherHttpClient.BodyTooLargeException.class)
+    public void bodyOverLimitFails() throws Exception {
+        WeatherHttpClient client = new WeatherHttpClient(2000, 2000,
+                WeatherHttpClient.DEFAULT_MAX_REQUESTS_PER_HOST, mForecastBody.length() / 2);
+        client.get(mServer.url("/weather"));
+    }
+
+    /**
+     * Canceling the token should abort a request stuck waiting on a slow server well before its
+     * read timeout, and give its per-host permit back.
+     */
+    @Test
+    public void cancelAbortsBlockedRequest() throws Exception {
+        WeatherHttpClient client = new WeatherHttpClient(2000, 20000, 1);
+        URL url = mServer.url("/weather");
+        mServer.setResponseDelayMillis(10000);
+
+        CancellationToken token = CancellationToken.create();
+        Thread canceler = new Thread(() -> {
+            SystemClock.sleep(200);
+            token.cancel();
+        });
+        canceler.start();
+
+        long start = SystemClock.elapsedRealtime();
+        try {
+            client.get(url, Collections.<String, String>emptyMap(),
+                    (response, body) -> OpenWeatherJsonUtils.getWeatherEntriesFromJson(body),
+                    token);
+            fail("Expected the request to be canceled");
+        } catch (CancellationToken.CanceledException expected) {
+        }
+        assertTrue(SystemClock.elapsedRealtime() - start < STOP_BOUND_MILLIS);
+
+        /* The only permit of the host is free again */
+        mServer.setResponseDelayMillis(0);
+        assertEquals(mForecastBody, client.get(url).getBody());
+    }
+
+    /**
+     * A request waiting for a permit of a busy host should give up at its token's deadline.
+     */
+    @Test
+    public void deadlineStopsWaitingForHost() throws Exception {
+        WeatherHttpClient client = new WeatherHttpClient(2000, 20000, 1);
+        URL url = mServer.url("/weather");
+        mServer.setResponseDelayMillis(3000);
+
+        /* Hold the only permit of the host */
+        Thread busy = new Thread(() -> {
+            try {
+                client.get(url);
+            } catch (IOException ignored) {
+            }
+        });
+        busy.start();
+        SystemClock.sleep(100);
+
+        long start = SystemClock.elapsedRealtime();
+        try {
+            client.get(url, Collections.<String, String>emptyMap(),
+                    (response, body) -> null, CancellationToken.withTimeout(300));
+            fail("Expected the deadline to pass");
+        } catch (CancellationToken.CanceledException expected) {
+        }
+        assertTrue(SystemClock.elapsedRealtime() - start < STOP_BOUND_MILLIS);
+        busy.join();
+    }
+}
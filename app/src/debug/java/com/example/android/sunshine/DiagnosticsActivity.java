@@ -0,0 +1,62 @@
+package com.example.android.sunshine;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.text.format.DateUtils;
+import android.widget.TextView;
+
+import com.example.android.sunshine.data.AppExecutors;
+import com.example.android.sunshine.data.ExecutorMetrics;
+import com.example.android.sunshine.data.WeatherEntryCache;
+import com.example.android.sunshine.sync.SyncTelemetry;
+import com.example.android.sunshine.sync.SyncTrace;
+
+import java.util.List;
+
+/**
+ * Debug builds only. Shows the percentiles of every sync stage, the most recent sync traces and
+ * the counters of the executors and the entry cache, as of when the screen was opened.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    /* Traces listed below the summaries */
+    private static final int RECENT_TRACES = 10;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        TextView diagnosticsTextView = findViewById(R.id.tv_diagnostics);
+        diagnosticsTextView.setText(buildReport());
+    }
+
+    private String buildReport() {
+        SyncTelemetry telemetry = SyncTelemetry.getInstance();
+        StringBuilder report = new StringBuilder("Sync stages\n");
+        for (SyncTrace.Stage stage : SyncTrace.Stage.values()) {
+            report.append("  ").append(telemetry.getSummary(stage)).append('\n');
+        }
+
+        report.append("\nRecent syncs\n");
+        List<SyncTrace> traces = telemetry.getTraces();
+        for (SyncTrace trace : traces.subList(0, Math.min(RECENT_TRACES, traces.size()))) {
+            report.append("  ")
+                    .append(DateUtils.formatDateTime(this, trace.getStartMillis(),
+                            DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME))
+                    .append(": ").append(trace).append('\n');
+        }
+
+        report.append("\nExecutors\n");
+        for (ExecutorMetrics metrics : AppExecutors.getInstance().getMetrics()) {
+            report.append("  ").append(metrics).append('\n');
+        }
+
+        report.append("\n").append(WeatherEntryCache.getInstance()).append('\n');
+        return report.toString();
+    }
+}
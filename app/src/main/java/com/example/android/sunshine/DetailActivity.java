@@ -24,6 +24,7 @@ import com.example.android.sunshine.data.database.WeatherDao;
 import com.example.android.sunshine.data.database.WeatherEntry;
 import com.example.android.sunshine.utilities.SunshineDateUtils;
 import com.example.android.sunshine.utilities.SunshineWeatherUtils;
+import com.example.android.sunshine.utilities.WeatherFormatter;
 
 public class DetailActivity extends AppCompatActivity
         implements SharedPreferences.OnSharedPreferenceChangeListener{
@@ -58,8 +59,10 @@ public class DetailActivity extends AppCompatActivity
             // Get the extra
             long weatherDate = comingIntent.getLongExtra(INTENT_DATE_KEY, DEFAULT_WEATHER_ENTRY_DATE);
 
-            // ViewModelFactory
-            DetailViewModelFactory modelFactory = new DetailViewModelFactory(weatherDate, mDb);
+            // ViewModelFactory, the forecast shown is always the one of the preferred location
+            String location = SunshinePreferences.getPreferredWeatherLocation(this);
+            DetailViewModelFactory modelFactory =
+                    new DetailViewModelFactory(location, weatherDate, mDb);
 
             // ViewModel
             DetailViewModel viewModel =
@@ -118,9 +121,12 @@ public class DetailActivity extends AppCompatActivity
         // Weather description
         mDetailBinding.primaryInfo.tvWeatherDescription.setText(weatherEntry.getDescription());
 
+        /* The units are read once for the whole screen */
+        WeatherFormatter formatter = WeatherFormatter.getInstance(this);
+
         /* Format high/low temp and set accordingly */
-        String highString = SunshineWeatherUtils.formatTemperature(this, weatherEntry.getMax());
-        String lowString = SunshineWeatherUtils.formatTemperature(this, weatherEntry.getMin());
+        String highString = formatter.formatTemperature(weatherEntry.getMax());
+        String lowString = formatter.formatTemperature(weatherEntry.getMin());
         mDetailBinding.primaryInfo.tvHighTemperature.setText(highString);
         mDetailBinding.primaryInfo.tvLowTemperature.setText(lowString);
 
@@ -132,7 +138,7 @@ public class DetailActivity extends AppCompatActivity
         /* Wind speed and direction */
         float windDirection = (float) weatherEntry.getWindDirection();
         float windSpeed = (float) weatherEntry.getWindSpeed();
-        String windString = SunshineWeatherUtils.getFormattedWind(this, windSpeed, windDirection);
+        String windString = formatter.formatWind(windSpeed, windDirection);
         mDetailBinding.extraDetails.tvWindMeasurement.setText(windString);
 
         /* Pressure */
@@ -1,21 +1,72 @@
 package com.example.android.sunshine;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
 import android.arch.lifecycle.ViewModel;
 import android.util.Log;
 
+import com.example.android.sunshine.data.AppExecutors;
+import com.example.android.sunshine.data.PriorityExecutor;
+import com.example.android.sunshine.data.WeatherEntryCache;
 import com.example.android.sunshine.data.database.AppDatabase;
+import com.example.android.sunshine.data.database.WeatherDao;
 import com.example.android.sunshine.data.database.WeatherEntry;
 
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * ViewModel class for detail activity
+ * It reads through the {@link WeatherEntryCache}: a cached day is shown right away, and the DB
+ * query only keeps it up to date.
+ */
 public class DetailViewModel extends ViewModel {
 
-    private LiveData<WeatherEntry> mWeatherEntry;
+    private MediatorLiveData<WeatherEntry> mWeatherEntry = new MediatorLiveData<>();
     private final String TAG = this.getClass().getSimpleName();
 
-    public DetailViewModel(AppDatabase db, long weatherEntryDate){
-        mWeatherEntry = db.weatherDao().getWeatherByDate(weatherEntryDate);
+    public DetailViewModel(AppDatabase db, WeatherEntryCache entryCache,
+                           String location, long weatherEntryDate){
+        WeatherEntry cached = entryCache.get(location, weatherEntryDate);
+        if (cached != null) {
+            mWeatherEntry.setValue(cached);
+            Log.d(TAG, "Cache hit for a single day, " + entryCache);
+        }
+
+        /* Read before querying, so a row loaded before a later sync cannot be cached as current */
+        long generation = entryCache.getGeneration();
+        LiveData<WeatherEntry> fromDb = db.weatherDao().getWeatherByDate(location, weatherEntryDate);
+        mWeatherEntry.addSource(fromDb, weatherEntry -> {
+            WeatherEntry current = mWeatherEntry.getValue();
+            /* The DB confirms what is shown, nothing to rebind */
+            if (weatherEntry != null && current != null && weatherEntry.getId() == current.getId()
+                    && weatherEntry.hasSameForecastAs(current)) {
+                return;
+            }
+            entryCache.put(weatherEntry, generation);
+            if (weatherEntry != null && entryCache.getGeneration() != generation) {
+                recache(db.weatherDao(), entryCache, location, weatherEntryDate);
+            }
+            mWeatherEntry.setValue(weatherEntry);
+        });
         Log.d(TAG, "Retrieve data from DB for a single day");
     }
 
+    /**
+     * A sync invalidated the cache since the observed query started, so the delivered row cannot
+     * be put. Reads the row again under the current generation, so the day is cached once more.
+     */
+    private void recache(WeatherDao weatherDao, WeatherEntryCache entryCache, String location,
+                         long date) {
+        try {
+            AppExecutors.getInstance().getDiskIO().execute(() -> {
+                long generation = entryCache.getGeneration();
+                entryCache.put(weatherDao.getWeatherByDateNow(location, date), generation);
+            }, PriorityExecutor.Priority.BACKGROUND);
+        } catch (RejectedExecutionException e) {
+            /* The next visit reads through to the DB anyway */
+            Log.w(TAG, "Skipped caching the day: " + e.getMessage());
+        }
+    }
+
     public LiveData<WeatherEntry> getWeatherEntry(){ return mWeatherEntry; }
 }
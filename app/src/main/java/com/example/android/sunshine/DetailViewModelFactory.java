@@ -4,13 +4,16 @@ import android.arch.lifecycle.ViewModel;
 import android.arch.lifecycle.ViewModelProvider;
 import android.support.annotation.NonNull;
 
+import com.example.android.sunshine.data.WeatherEntryCache;
 import com.example.android.sunshine.data.database.AppDatabase;
 
 public class DetailViewModelFactory extends ViewModelProvider.NewInstanceFactory {
+    final private String mLocation;
     final private long mWeatherEntryDate;
     final private AppDatabase mDb;
 
-    public DetailViewModelFactory(long weatherEntryDate, AppDatabase db){
+    public DetailViewModelFactory(String location, long weatherEntryDate, AppDatabase db){
+        mLocation = location;
         mWeatherEntryDate = weatherEntryDate;
         mDb = db;
     }
@@ -18,6 +21,7 @@ public class DetailViewModelFactory extends ViewModelProvider.NewInstanceFactory
     @NonNull
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass){
-        return (T) new DetailViewModel(mDb, mWeatherEntryDate);
+        return (T) new DetailViewModel(mDb, WeatherEntryCache.getInstance(), mLocation,
+                mWeatherEntryDate);
     }
 }
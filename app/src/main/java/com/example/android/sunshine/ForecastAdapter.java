@@ -15,11 +15,14 @@
  */
 package com.example.android.sunshine;
 
+import android.arch.paging.PagedList;
+import android.arch.paging.PagedListAdapter;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.support.annotation.NonNull;
 import android.support.constraint.ConstraintLayout;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -27,18 +30,17 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.example.android.sunshine.data.SunshinePreferences;
-import com.example.android.sunshine.data.database.WeatherEntry;
-import com.example.android.sunshine.utilities.SunshineDateUtils;
-import com.example.android.sunshine.utilities.SunshineWeatherUtils;
 
 import java.util.List;
 
 /**
  * {@link ForecastAdapter} exposes a list of weather forecasts to a
  * {@link android.support.v7.widget.RecyclerView}
+ * The forecasts come as a {@link PagedList}, so rows that are not loaded yet are null
+ * placeholders. The rows are formatted by {@link MainViewModel}, binding only sets views.
  */
-public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder> {
+public class ForecastAdapter
+        extends PagedListAdapter<ForecastRow, ForecastAdapter.ForecastAdapterViewHolder> {
     /*
      * These constants will be used in determination of show today's forecast different or not.
      */
@@ -48,7 +50,55 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
 
     private final Context mContext;
 
-    private List<WeatherEntry> mWeatherData;
+    /*
+     * Payloads of a partial rebind, OR-ed together. A row whose temperatures changed only gets
+     * its temperatures set again, and so on.
+     */
+    static final int PAYLOAD_ICON = 1;
+    static final int PAYLOAD_DESCRIPTION = 1 << 1;
+    static final int PAYLOAD_TEMPERATURE = 1 << 2;
+
+    static final int PAYLOAD_DATE = 1 << 3;
+
+    /* Rows are the same day if they have the same date */
+    static final DiffUtil.ItemCallback<ForecastRow> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<ForecastRow>() {
+                @Override
+                public boolean areItemsTheSame(ForecastRow oldItem, ForecastRow newItem) {
+                    return oldItem.getDate() == newItem.getDate();
+                }
+
+                @Override
+                public boolean areContentsTheSame(ForecastRow oldItem, ForecastRow newItem) {
+                    return getChanges(oldItem, newItem) == 0;
+                }
+
+                /* Tells onBindViewHolder which of the displayed fields changed */
+                @Override
+                public Object getChangePayload(ForecastRow oldItem, ForecastRow newItem) {
+                    return getChanges(oldItem, newItem);
+                }
+
+                private int getChanges(ForecastRow oldItem, ForecastRow newItem) {
+                    int changes = 0;
+                    if (oldItem.getSmallIconResId() != newItem.getSmallIconResId()
+                            || oldItem.getLargeIconResId() != newItem.getLargeIconResId()) {
+                        changes |= PAYLOAD_ICON;
+                    }
+                    if (!TextUtils.equals(oldItem.getDescription(), newItem.getDescription())) {
+                        changes |= PAYLOAD_DESCRIPTION;
+                    }
+                    if (!TextUtils.equals(oldItem.getHighText(), newItem.getHighText())
+                            || !TextUtils.equals(oldItem.getLowText(), newItem.getLowText())) {
+                        changes |= PAYLOAD_TEMPERATURE;
+                    }
+                    if (!TextUtils.equals(oldItem.getDateText(), newItem.getDateText())
+                            || !TextUtils.equals(oldItem.getLocation(), newItem.getLocation())) {
+                        changes |= PAYLOAD_DATE;
+                    }
+                    return changes;
+                }
+            };
 
     /*
      * An on-click handler that we've defined to make it easy for an Activity to interface with
@@ -70,6 +120,7 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
      *                     when an item is clicked.
      */
     public ForecastAdapter(@NonNull Context context, ForecastAdapterOnClickHandler clickHandler) {
+        super(DIFF_CALLBACK);
         mClickHandler = clickHandler;
         mContext = context;
         /* Get boolean value to show custom layout for today */
@@ -111,8 +162,12 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
+            if (adapterPosition == RecyclerView.NO_POSITION) return;
+            ForecastRow row = getItem(adapterPosition);
+            /* A placeholder has nothing to show yet */
+            if (row == null) return;
             // Pass the clicked weather entry's date.
-            mClickHandler.onClick(mWeatherData.get(adapterPosition).getDate());
+            mClickHandler.onClick(row.getDate());
         }
     }
 
@@ -161,57 +216,104 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
 
-        /* Prepare data to show in MainActivity UI */
-        WeatherEntry weatherEntry = mWeatherData.get(position);
+        /* The row is formatted already, binding only sets the views */
+        ForecastRow row = getItem(position);
+
+        /* The row's page is not loaded yet, show an empty row until it is */
+        if (row == null) {
+            bindPlaceholder(forecastAdapterViewHolder);
+            return;
+        }
+
+        bindDate(forecastAdapterViewHolder, position, row);
+        bindIcon(forecastAdapterViewHolder, position, row);
+        bindDescription(forecastAdapterViewHolder, row);
+        bindTemperatures(forecastAdapterViewHolder, row);
+    }
+
+    /**
+     * Rebinds only the fields named by the payloads of a targeted change, see
+     * {@link #DIFF_CALLBACK}. Without payloads the whole row is bound.
+     */
+    @Override
+    public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position,
+                                 List<Object> payloads) {
+        ForecastRow row = getItem(position);
+        if (payloads.isEmpty() || row == null) {
+            onBindViewHolder(forecastAdapterViewHolder, position);
+            return;
+        }
 
-        /* Get human readable string using our utility method */
-        String dateString = SunshineDateUtils.getFriendlyDateString(mContext, weatherEntry.getDate(), false);
+        /* Changes that arrive before the row is rebound are merged into one list */
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        if ((changes & PAYLOAD_DATE) != 0) {
+            bindDate(forecastAdapterViewHolder, position, row);
+        }
+        if ((changes & PAYLOAD_ICON) != 0) {
+            bindIcon(forecastAdapterViewHolder, position, row);
+        }
+        if ((changes & PAYLOAD_DESCRIPTION) != 0) {
+            bindDescription(forecastAdapterViewHolder, row);
+        }
+        if ((changes & PAYLOAD_TEMPERATURE) != 0) {
+            bindTemperatures(forecastAdapterViewHolder, row);
+        }
+    }
 
-        /* Get location from shared preferences */
-        String location = SunshinePreferences.getPreferredWeatherLocation(mContext);
+    private void bindDate(ForecastAdapterViewHolder forecastAdapterViewHolder, int position,
+                          ForecastRow row) {
+        /* Set location as well on today's row */
+        if (getItemViewType(position) == VIEW_TYPE_TODAY) {
+            forecastAdapterViewHolder.tvLocation.setText(row.getLocation());
+        }
+        forecastAdapterViewHolder.tvDate.setText(row.getDateText());
+    }
 
+    private void bindIcon(ForecastAdapterViewHolder forecastAdapterViewHolder, int position,
+                          ForecastRow row) {
         int viewType = getItemViewType(position);
         int weatherImageId;
-        /* Get icon id and set */
         switch (viewType) {
             case VIEW_TYPE_TODAY:
-                weatherImageId = SunshineWeatherUtils
-                        .getLargeArtResourceIdForWeatherCondition(weatherEntry.getWeatherId());
-                /* Set location as well */
-                forecastAdapterViewHolder.tvLocation.setText(location);
+                weatherImageId = row.getLargeIconResId();
                 break;
 
             case VIEW_TYPE_FUTURE_DAY:
-                weatherImageId = SunshineWeatherUtils
-                        .getSmallArtResourceIdForWeatherCondition(weatherEntry.getWeatherId());
+                weatherImageId = row.getSmallIconResId();
                 break;
             default:
                 throw new IllegalArgumentException("Invalid view type, value of " + viewType);
         }
         forecastAdapterViewHolder.ivWeatherIconView.setImageResource(weatherImageId);
+    }
 
-        /* Format temperatures */
-        String highString = SunshineWeatherUtils.formatTemperature(mContext, weatherEntry.getMax());
-        String lowString = SunshineWeatherUtils.formatTemperature(mContext, weatherEntry.getMin());
-
+    private void bindDescription(ForecastAdapterViewHolder forecastAdapterViewHolder,
+                                 ForecastRow row) {
+        forecastAdapterViewHolder.tvDescription.setText(row.getDescription());
+    }
 
-        /* Set TextViews */
-        forecastAdapterViewHolder.tvDate.setText(dateString);
-        forecastAdapterViewHolder.tvDescription.setText(weatherEntry.getDescription());
-        forecastAdapterViewHolder.tvHigh.setText(highString);
-        forecastAdapterViewHolder.tvLow.setText(lowString);
+    private void bindTemperatures(ForecastAdapterViewHolder forecastAdapterViewHolder,
+                                  ForecastRow row) {
+        forecastAdapterViewHolder.tvHigh.setText(row.getHighText());
+        forecastAdapterViewHolder.tvLow.setText(row.getLowText());
     }
 
     /**
-     * This method simply returns the number of items to display. It is used behind the scenes
-     * to help layout our Views and for animations.
-     *
-     * @return The number of items available in our forecast
+     * Clears a row whose data is not loaded yet.
+     * @param forecastAdapterViewHolder
      */
-    @Override
-    public int getItemCount() {
-        if (null == mWeatherData) return 0;
-        return mWeatherData.size();
+    private void bindPlaceholder(ForecastAdapterViewHolder forecastAdapterViewHolder) {
+        if (forecastAdapterViewHolder.tvLocation != null) {
+            forecastAdapterViewHolder.tvLocation.setText(null);
+        }
+        forecastAdapterViewHolder.ivWeatherIconView.setImageDrawable(null);
+        forecastAdapterViewHolder.tvDate.setText(null);
+        forecastAdapterViewHolder.tvDescription.setText(null);
+        forecastAdapterViewHolder.tvHigh.setText(null);
+        forecastAdapterViewHolder.tvLow.setText(null);
     }
 
     /**
@@ -228,13 +330,13 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
     /**
      * This method is used to set the weather forecast on a ForecastAdapter if we've already
      * created one. This is handy when we get new data from the web but don't want to create a
-     * new ForecastAdapter to display it.
+     * new ForecastAdapter to display it. Changes are diffed in the background, so only the
+     * rows that changed are rebound.
      *
      * @param weatherData The new weather data to be displayed.
      */
-    public void setWeatherData(List<WeatherEntry> weatherData) {
-        mWeatherData = weatherData;
-        notifyDataSetChanged();
+    public void setWeatherData(PagedList<ForecastRow> weatherData) {
+        submitList(weatherData);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package com.example.android.sunshine;
+
+import android.content.Context;
+
+import com.example.android.sunshine.data.database.ListWeatherEntry;
+import com.example.android.sunshine.utilities.SunshineDateUtils;
+import com.example.android.sunshine.utilities.WeatherFormatter;
+import com.example.android.sunshine.utilities.SunshineWeatherUtils;
+
+/**
+ * One row of the forecast list, ready to render: every text is formatted and every icon
+ * resolved. Rows are built on the paging thread when a page loads, so binding a row only calls
+ * view setters.
+ */
+public final class ForecastRow {
+
+    private final long mDate;
+    private final String mLocation;
+    private final String mDateText;
+    private final String mDescription;
+    private final String mHighText;
+    private final String mLowText;
+    private final int mSmallIconResId;
+    private final int mLargeIconResId;
+
+    ForecastRow(long date, String location, String dateText, String description,
+                String highText, String lowText, int smallIconResId, int largeIconResId) {
+        mDate = date;
+        mLocation = location;
+        mDateText = dateText;
+        mDescription = description;
+        mHighText = highText;
+        mLowText = lowText;
+        mSmallIconResId = smallIconResId;
+        mLargeIconResId = largeIconResId;
+    }
+
+    /**
+     * Formats a list entry.
+     * @param context
+     * @param entry
+     * @param location Shown on today's row
+     * @param formatter Formatter of the units the rows are built for
+     */
+    static ForecastRow from(Context context, ListWeatherEntry entry, String location,
+                            WeatherFormatter formatter) {
+        return new ForecastRow(entry.getDate(),
+                location,
+                SunshineDateUtils.getFriendlyDateString(context, entry.getDate(), false),
+                entry.getDescription(),
+                formatter.formatTemperature(entry.getMax()),
+                formatter.formatTemperature(entry.getMin()),
+                SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(entry.getWeatherId()),
+                SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(entry.getWeatherId()));
+    }
+
+    public long getDate() { return mDate; }
+
+    public String getLocation() { return mLocation; }
+
+    public String getDateText() { return mDateText; }
+
+    public String getDescription() { return mDescription; }
+
+    public String getHighText() { return mHighText; }
+
+    public String getLowText() { return mLowText; }
+
+    public int getSmallIconResId() { return mSmallIconResId; }
+
+    public int getLargeIconResId() { return mLargeIconResId; }
+}
@@ -18,10 +18,11 @@ package com.example.android.sunshine;
 import android.app.ActionBar;
 import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.ViewModelProviders;
-import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
+import android.arch.paging.PagedList;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
@@ -40,15 +41,12 @@ import android.widget.Toast;
 
 import com.example.android.sunshine.ForecastAdapter.ForecastAdapterOnClickHandler;
 import com.example.android.sunshine.data.SunshinePreferences;
-import com.example.android.sunshine.data.database.WeatherEntry;
 import com.example.android.sunshine.utilities.NetworkUtils;
 import com.example.android.sunshine.utilities.SunshineSyncUtils;
 
-import java.util.List;
 
 public class MainActivity extends AppCompatActivity
-        implements ForecastAdapterOnClickHandler,
-        SharedPreferences.OnSharedPreferenceChangeListener{
+        implements ForecastAdapterOnClickHandler{
 
     private final String TAG = this.getClass().getSimpleName();
     private Toast mToast;
@@ -58,8 +56,6 @@ public class MainActivity extends AppCompatActivity
      */
     private int MANUAL_REFRESH_INTERVAL_IN_MINS = 30;
 
-    private static boolean UNIT_PREFERENCE_UPDATED = false;
-
 
     private RecyclerView mRecyclerView;
     private ForecastAdapter mForecastAdapter;
@@ -68,6 +64,14 @@ public class MainActivity extends AppCompatActivity
 
     private ProgressBar mLoadingIndicator;
 
+    /* Rebuilds the rows when the day rolls over or the clock is set while we are shown */
+    private final BroadcastReceiver mDateChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            ViewModelProviders.of(MainActivity.this).get(MainViewModel.class).refreshDisplay();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -124,29 +128,26 @@ public class MainActivity extends AppCompatActivity
 
         /* Loading the data from view model*/
         loadDataFromViewModel();
-
-        /* Register the OnSharedPreferencesClickListener */
-        PreferenceManager.getDefaultSharedPreferences(this)
-                .registerOnSharedPreferenceChangeListener(this);
     }
 
     @Override
     protected void onStart() {
         super.onStart();
-        /* If a preference updated then reload the data and reset the flag */
-        if (UNIT_PREFERENCE_UPDATED) {
-            /* Notify the adapter since we've changed units */
-            mForecastAdapter.notifyDataSetChanged();
-            UNIT_PREFERENCE_UPDATED = false;
-        }
+        /*
+         * The rows are rebuilt if the location, the units or the day changed while we were away,
+         * e.g. on the settings screen
+         */
+        ViewModelProviders.of(this).get(MainViewModel.class).refreshDisplay();
+
+        IntentFilter filter = new IntentFilter(Intent.ACTION_DATE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        registerReceiver(mDateChangeReceiver, filter);
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        // Unregister the OnSharedPreferencesClickListener
-        PreferenceManager.getDefaultSharedPreferences(this)
-                .unregisterOnSharedPreferenceChangeListener(this);
+    protected void onStop() {
+        super.onStop();
+        unregisterReceiver(mDateChangeReceiver);
     }
 
     /**
@@ -221,7 +222,8 @@ public class MainActivity extends AppCompatActivity
         MainViewModel mainViewModel = ViewModelProviders.of(this).get(MainViewModel.class);
 
         // Get the weather data
-        final LiveData<List<WeatherEntry>> weatherEntries = mainViewModel.getWeatherEntries();
+        final LiveData<PagedList<ForecastRow>> weatherEntries =
+                mainViewModel.getWeatherEntries();
 
         /* Assign an Observer to the LiveData object
          * Update UI when the data changes.
@@ -282,17 +284,6 @@ public class MainActivity extends AppCompatActivity
         return super.onOptionsItemSelected(item);
     }
 
-    /*
-     * When a preference changed set the flag true
-     */
-    @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-        if (key.equals(getString(R.string.pref_units_key))) {
-            // units have changed. update lists of weather entries accordingly
-            UNIT_PREFERENCE_UPDATED = true;
-        }
-    }
-
     /* After deleting adapter data resyncs data from the net */
     private void refreshData(){
         /* Check if network is available */
@@ -3,43 +3,120 @@ package com.example.android.sunshine;
 import android.app.Application;
 import android.arch.lifecycle.AndroidViewModel;
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Transformations;
+import android.arch.paging.DataSource;
+import android.arch.paging.LivePagedListBuilder;
+import android.arch.paging.PagedList;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
-import com.example.android.sunshine.data.AppExecutors;
+import com.example.android.sunshine.data.PreferenceSnapshot;
 import com.example.android.sunshine.data.SunshinePreferences;
 import com.example.android.sunshine.data.database.AppDatabase;
-import com.example.android.sunshine.data.database.WeatherEntry;
-import com.example.android.sunshine.utilities.NetworkUtils;
-import com.example.android.sunshine.utilities.OpenWeatherJsonUtils;
+import com.example.android.sunshine.data.database.WeatherDao;
 import com.example.android.sunshine.utilities.SunshineDateUtils;
-
-import java.net.URL;
-import java.util.List;
+import com.example.android.sunshine.utilities.WeatherFormatter;
 
 /**
  * ViewModel class for main activity
  * The constructor reads data from db and caches it weatherEntries LiveData object.
  * The LiveData object can be obtained by its getter method from the MainActivity
+ * The entries follow the preferred location, so switching locations is a read from the DB.
+ * Entries are loaded page by page, so memory does not grow with the number of stored rows.
+ * Each page is turned into {@link ForecastRow}s on the paging thread; the rows are rebuilt only
+ * when the location, the units or the current day changes.
  */
 public class MainViewModel extends AndroidViewModel {
 
-    /* LiveData that holds weather data from db */
-    private LiveData<List<WeatherEntry>> weatherEntries;
-    private final String TAG = this.getClass().getSimpleName();
+    /* LiveData that holds the rows of the forecast list */
+    private LiveData<PagedList<ForecastRow>> weatherEntries;
+    /* What the rows are built for */
+    private final MutableLiveData<RowQuery> query = new MutableLiveData<>();
+    private static final String TAG = MainViewModel.class.getSimpleName();
 
     public MainViewModel(@NonNull Application application) {
         super(application);
 
-        /* Get local time and convert UTC */
-        long time = SunshineDateUtils.getUTCDateFromLocal(System.currentTimeMillis());
-        long normalizedDate = SunshineDateUtils.normalizeDate(time);
-        /* Read data from db */
-        weatherEntries = AppDatabase.getsInstance(application.getBaseContext()).weatherDao()
-                .getWeatherForecasts(normalizedDate);
+        /*
+         * Placeholders let the list show its full length and scroll bar before every page is
+         * loaded, the rows are bound as soon as their page arrives.
+         */
+        PagedList.Config pagingConfig = new PagedList.Config.Builder()
+                .setPageSize(application.getResources().getInteger(R.integer.forecast_page_size))
+                .setPrefetchDistance(application.getResources()
+                        .getInteger(R.integer.forecast_prefetch_distance))
+                .setEnablePlaceholders(true)
+                .build();
+
+        /* Read data of the current location from db */
+        WeatherDao weatherDao = AppDatabase.getsInstance(application.getBaseContext()).weatherDao();
+        weatherEntries = Transformations.switchMap(query, rowQuery -> {
+            /* The units are fixed for the rows of this query */
+            WeatherFormatter formatter = WeatherFormatter.getInstance(application,
+                    rowQuery.isMetric);
+            /* The mapping runs on the paging thread as each page loads */
+            DataSource.Factory<Integer, ForecastRow> rows = weatherDao
+                    .getWeatherForecasts(rowQuery.location, rowQuery.today)
+                    .map(entry -> ForecastRow.from(application, entry, rowQuery.location,
+                            formatter));
+            return new LivePagedListBuilder<>(rows, pagingConfig).build();
+        });
+        PreferenceSnapshot preferences = SunshinePreferences.getSnapshot(application);
+        query.setValue(new RowQuery(preferences.getPreferredLocation(), today(),
+                preferences.isMetric()));
         Log.d(TAG, "Loaded data from the DB");
     }
 
-    public LiveData<List<WeatherEntry>> getWeatherEntries() { return weatherEntries; }
+    /* Today's normalized UTC date */
+    private static long today() {
+        return SunshineDateUtils.getNormalizedUtcDateForToday();
+    }
+
+    /**
+     * Rebuilds the rows if the preferred location, the units preference or the current day
+     * changed since they were built. Cheap to call otherwise. A location switch shows the stored
+     * forecast right away, the sync refreshes it.
+     */
+    public void refreshDisplay() {
+        PreferenceSnapshot preferences = SunshinePreferences.getSnapshot(getApplication());
+        update(new RowQuery(preferences.getPreferredLocation(), today(),
+                preferences.isMetric()));
+    }
+
+    private void update(RowQuery newQuery) {
+        if (!newQuery.equals(query.getValue())) {
+            query.setValue(newQuery);
+        }
+    }
+
+    public LiveData<PagedList<ForecastRow>> getWeatherEntries() { return weatherEntries; }
+
+    /* Everything a row's text depends on besides the entry itself */
+    private static final class RowQuery {
+        final String location;
+        final long today;
+        final boolean isMetric;
 
+        RowQuery(String location, long today, boolean isMetric) {
+            this.location = location;
+            this.today = today;
+            this.isMetric = isMetric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RowQuery)) return false;
+            RowQuery other = (RowQuery) o;
+            return today == other.today && isMetric == other.isMetric
+                    && location.equals(other.location);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * location.hashCode() + (int) (today ^ (today >>> 32)))
+                    + (isMetric ? 1 : 0);
+        }
+    }
 }
@@ -77,7 +77,12 @@ public class SettingsFragment extends PreferenceFragmentCompat
             // we've changed the location
             // Wipe out any potential PlacePicker latlng values so that we can use this text entry.
             SunshinePreferences.resetLocationCoordinates(activity);
-            // Sync the weather if the location changes
+            // Sync the weather if the location changes. The service starts after every listener,
+            // the snapshot's included, has run
+            SunshineSyncUtils.startImmediateSync(activity);
+        }
+        else if (key.equals(getString(R.string.pref_saved_locations_key))) {
+            // Fetch the newly saved locations as well
             SunshineSyncUtils.startImmediateSync(activity);
         }
 
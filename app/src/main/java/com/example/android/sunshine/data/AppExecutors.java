@@ -2,21 +2,29 @@ package com.example.android.sunshine.data;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
 import android.support.annotation.NonNull;
 
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 public class AppExecutors {
     // For singleton instantiation
     private static final Object LOCK = new Object();
-    private static AppExecutors sInstance;
-    private Executor diskIO;
-    private Executor networkIO;
+    private static volatile AppExecutors sInstance;
+
+    /* Waiting tasks allowed before new ones are rejected */
+    private static final int DISK_QUEUE_CAPACITY = 64;
+    private static final int NETWORK_QUEUE_CAPACITY = 32;
+    private static final int NETWORK_THREAD_COUNT = 3;
+
+    private PriorityExecutor diskIO;
+    private PriorityExecutor networkIO;
     private Executor mainThread;
 
-    private AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread){
+    private AppExecutors(PriorityExecutor diskIO, PriorityExecutor networkIO, Executor mainThread){
         this.diskIO = diskIO;
         this.networkIO = networkIO;
         this.mainThread = mainThread;
@@ -25,12 +33,16 @@ public class AppExecutors {
     public static AppExecutors getInstance() {
         if (sInstance == null){
             synchronized (LOCK){
-                sInstance = new AppExecutors(
-                        // All of the DB operations will run in a single thread
-                        Executors.newSingleThreadExecutor(),
-                        // Three pooled threads for network operations
-                        Executors.newFixedThreadPool(3),
-                        new MainThreadExecutor());
+                if (sInstance == null) {
+                    sInstance = new AppExecutors(
+                            // All of the DB operations will run in a single thread
+                            new PriorityExecutor("sunshine-disk", 1, DISK_QUEUE_CAPACITY,
+                                    Process.THREAD_PRIORITY_BACKGROUND),
+                            // Three pooled threads for network operations
+                            new PriorityExecutor("sunshine-network", NETWORK_THREAD_COUNT,
+                                    NETWORK_QUEUE_CAPACITY, Process.THREAD_PRIORITY_BACKGROUND),
+                            new MainThreadExecutor());
+                }
             }
         }
 
@@ -38,12 +50,19 @@ public class AppExecutors {
     }
 
     // Getters
-    public Executor getDiskIO() { return diskIO; }
+    public PriorityExecutor getDiskIO() { return diskIO; }
 
-    public Executor getNetworkIO() { return networkIO; }
+    public PriorityExecutor getNetworkIO() { return networkIO; }
 
     public Executor getMainThread() { return mainThread; }
 
+    /**
+     * Returns the current counters of the disk and network executors.
+     */
+    public List<ExecutorMetrics> getMetrics() {
+        return Arrays.asList(diskIO.getMetrics(), networkIO.getMetrics());
+    }
+
     /* Implement MainThread Executor
      * This will help to put Runnable instances to the main thread's handler
      * Currently, we don't need this since we can use runOnUiThread() method
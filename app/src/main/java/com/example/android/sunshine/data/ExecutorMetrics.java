@@ -0,0 +1,70 @@
+package com.example.android.sunshine.data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the counters of a {@link PriorityExecutor}. Times are in nanoseconds.
+ */
+public final class ExecutorMetrics {
+
+    private final String mName;
+    private final int mQueueDepth;
+    private final int mMaxQueueDepth;
+    private final int mQueueCapacity;
+    private final long mCompleted;
+    private final long mRejected;
+    private final long mTotalWaitNanos;
+    private final long mMaxWaitNanos;
+    private final long mTotalRunNanos;
+    private final long mMaxRunNanos;
+
+    ExecutorMetrics(String name, int queueDepth, int maxQueueDepth, int queueCapacity,
+                    long completed, long rejected, long totalWaitNanos, long maxWaitNanos,
+                    long totalRunNanos, long maxRunNanos) {
+        mName = name;
+        mQueueDepth = queueDepth;
+        mMaxQueueDepth = maxQueueDepth;
+        mQueueCapacity = queueCapacity;
+        mCompleted = completed;
+        mRejected = rejected;
+        mTotalWaitNanos = totalWaitNanos;
+        mMaxWaitNanos = maxWaitNanos;
+        mTotalRunNanos = totalRunNanos;
+        mMaxRunNanos = maxRunNanos;
+    }
+
+    public String getName() { return mName; }
+
+    /** Tasks waiting for a thread when the snapshot was taken */
+    public int getQueueDepth() { return mQueueDepth; }
+
+    public int getMaxQueueDepth() { return mMaxQueueDepth; }
+
+    public int getQueueCapacity() { return mQueueCapacity; }
+
+    public long getCompletedCount() { return mCompleted; }
+
+    public long getRejectedCount() { return mRejected; }
+
+    public long getMeanWaitNanos() { return mCompleted == 0 ? 0 : mTotalWaitNanos / mCompleted; }
+
+    public long getMaxWaitNanos() { return mMaxWaitNanos; }
+
+    public long getMeanRunNanos() { return mCompleted == 0 ? 0 : mTotalRunNanos / mCompleted; }
+
+    public long getMaxRunNanos() { return mMaxRunNanos; }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return mName + ": queued " + mQueueDepth + " (max " + mMaxQueueDepth
+                + "/" + mQueueCapacity + ")"
+                + ", completed " + mCompleted
+                + ", rejected " + mRejected
+                + ", wait " + toMillis(getMeanWaitNanos()) + " ms (max " + toMillis(mMaxWaitNanos) + ")"
+                + ", run " + toMillis(getMeanRunNanos()) + " ms (max " + toMillis(mMaxRunNanos) + ")";
+    }
+}
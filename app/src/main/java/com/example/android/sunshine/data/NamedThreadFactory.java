@@ -0,0 +1,31 @@
+package com.example.android.sunshine.data;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates threads named after their executor, like "sunshine-disk-1", that run at the given
+ * Linux priority so they show up clearly in traces and do not compete with the UI thread.
+ */
+final class NamedThreadFactory implements ThreadFactory {
+
+    private final String mName;
+    private final int mThreadPriority;
+    private final AtomicInteger mCount = new AtomicInteger();
+
+    NamedThreadFactory(String name, int threadPriority) {
+        mName = name;
+        mThreadPriority = threadPriority;
+    }
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+        return new Thread(() -> {
+            Process.setThreadPriority(mThreadPriority);
+            runnable.run();
+        }, mName + "-" + mCount.incrementAndGet());
+    }
+}
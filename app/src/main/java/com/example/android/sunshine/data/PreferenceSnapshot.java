@@ -0,0 +1,148 @@
+package com.example.android.sunshine.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.android.sunshine.R;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable copy of the preferences that are read on hot paths. {@link SunshinePreferences}
+ * keeps the current snapshot in memory and swaps in a new one whenever one of its keys changes,
+ * so reading a value is a field access.
+ */
+public final class PreferenceSnapshot {
+
+    private final String mPreferredLocation;
+    private final List<String> mSavedLocations;
+    private final boolean mMetric;
+    private final boolean mNotificationsEnabled;
+    private final long mLastNotificationTime;
+    private final long mLastSyncTime;
+    private final long mSyncIntervalMillis;
+    private final long mScheduledSyncDelayMillis;
+    /* NaN if the scheduler never saved one */
+    private final float mSyncVolatility;
+    private final long mLastSuccessfulSyncTime;
+
+    private PreferenceSnapshot(String preferredLocation, List<String> savedLocations,
+                               boolean metric, boolean notificationsEnabled,
+                               long lastNotificationTime, long lastSyncTime,
+                               long syncIntervalMillis, long scheduledSyncDelayMillis,
+                               float syncVolatility, long lastSuccessfulSyncTime) {
+        mPreferredLocation = preferredLocation;
+        mSavedLocations = savedLocations;
+        mMetric = metric;
+        mNotificationsEnabled = notificationsEnabled;
+        mLastNotificationTime = lastNotificationTime;
+        mLastSyncTime = lastSyncTime;
+        mSyncIntervalMillis = syncIntervalMillis;
+        mScheduledSyncDelayMillis = scheduledSyncDelayMillis;
+        mSyncVolatility = syncVolatility;
+        mLastSuccessfulSyncTime = lastSuccessfulSyncTime;
+    }
+
+    public String getPreferredLocation() { return mPreferredLocation; }
+
+    /** The preferred location first, then the other saved locations. Unmodifiable. */
+    public List<String> getSavedLocations() { return mSavedLocations; }
+
+    public boolean isMetric() { return mMetric; }
+
+    public boolean areNotificationsEnabled() { return mNotificationsEnabled; }
+
+    public long getLastNotificationTime() { return mLastNotificationTime; }
+
+    public long getLastSyncTime() { return mLastSyncTime; }
+
+    public long getSyncIntervalMillis() { return mSyncIntervalMillis; }
+
+    public long getScheduledSyncDelayMillis() { return mScheduledSyncDelayMillis; }
+
+    public float getSyncVolatility(float defaultVolatility) {
+        return Float.isNaN(mSyncVolatility) ? defaultVolatility : mSyncVolatility;
+    }
+
+    public long getLastSuccessfulSyncTime() { return mLastSuccessfulSyncTime; }
+
+    /**
+     * Keys and defaults of the snapshot, resolved from resources once.
+     */
+    static final class Reader {
+        private final String mLocationKey;
+        private final String mSavedLocationsKey;
+        private final String mUnitsKey;
+        private final String mMetricValue;
+        private final String mNotificationsKey;
+        private final boolean mNotificationsByDefault;
+        private final String mLastNotificationKey;
+        private final String mLastSyncKey;
+        private final String mSyncIntervalKey;
+        private final String mScheduledSyncDelayKey;
+        private final String mSyncVolatilityKey;
+        private final String mLastSuccessfulSyncKey;
+        private final String mDefaultLocation;
+        private final String mSavedLocationsSeparator;
+        private final Set<String> mKeys;
+
+        Reader(Context context, String syncIntervalKey, String scheduledSyncDelayKey,
+               String syncVolatilityKey, String lastSuccessfulSyncKey, String defaultLocation,
+               String savedLocationsSeparator) {
+            mLocationKey = context.getString(R.string.pref_location_key);
+            mSavedLocationsKey = context.getString(R.string.pref_saved_locations_key);
+            mUnitsKey = context.getString(R.string.pref_units_key);
+            mMetricValue = context.getString(R.string.pref_units_metric);
+            mNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
+            mNotificationsByDefault = context.getResources()
+                    .getBoolean(R.bool.show_notifications_by_default);
+            mLastNotificationKey = context.getString(R.string.pref_last_notification);
+            mLastSyncKey = context.getString(R.string.pref_last_sync);
+            mSyncIntervalKey = syncIntervalKey;
+            mScheduledSyncDelayKey = scheduledSyncDelayKey;
+            mSyncVolatilityKey = syncVolatilityKey;
+            mLastSuccessfulSyncKey = lastSuccessfulSyncKey;
+            mDefaultLocation = defaultLocation;
+            mSavedLocationsSeparator = savedLocationsSeparator;
+            mKeys = new HashSet<>(Arrays.asList(mLocationKey, mSavedLocationsKey, mUnitsKey,
+                    mNotificationsKey, mLastNotificationKey, mLastSyncKey, mSyncIntervalKey,
+                    mScheduledSyncDelayKey, mSyncVolatilityKey, mLastSuccessfulSyncKey));
+        }
+
+        /** True if the snapshot has to be read again after the key changed */
+        boolean isSnapshotKey(String key) {
+            return mKeys.contains(key);
+        }
+
+        PreferenceSnapshot read(SharedPreferences sp) {
+            /* The location also keys the stored forecast, so stray spaces must not split it */
+            String location = sp.getString(mLocationKey, mDefaultLocation).trim();
+
+            List<String> locations = new ArrayList<>();
+            locations.add(location);
+            String saved = sp.getString(mSavedLocationsKey, "");
+            for (String savedLocation : saved.split(mSavedLocationsSeparator)) {
+                String trimmed = savedLocation.trim();
+                if (!trimmed.isEmpty() && !locations.contains(trimmed)) {
+                    locations.add(trimmed);
+                }
+            }
+
+            return new PreferenceSnapshot(location,
+                    Collections.unmodifiableList(locations),
+                    mMetricValue.equals(sp.getString(mUnitsKey, mMetricValue)),
+                    sp.getBoolean(mNotificationsKey, mNotificationsByDefault),
+                    sp.getLong(mLastNotificationKey, 0),
+                    sp.getLong(mLastSyncKey, 0),
+                    sp.getLong(mSyncIntervalKey, 0),
+                    sp.getLong(mScheduledSyncDelayKey, 0),
+                    sp.getFloat(mSyncVolatilityKey, Float.NaN),
+                    sp.getLong(mLastSuccessfulSyncKey, 0));
+        }
+    }
+}
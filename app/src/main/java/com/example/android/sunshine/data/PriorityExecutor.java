@@ -0,0 +1,174 @@
+package com.example.android.sunshine.data;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size thread pool whose queue is ordered by {@link Priority} and then by submission, and
+ * bounded to a number of waiting tasks. A task submitted while the queue is full is rejected with
+ * a {@link RejectedExecutionException}; the caller decides whether to run it itself, retry or
+ * drop it. Queue depth, wait time, run time and rejections are kept for {@link #getMetrics()}.
+ */
+public class PriorityExecutor extends ThreadPoolExecutor {
+
+    /**
+     * Priority classes, the first runs first. Tasks of the same class run in submission order.
+     */
+    public enum Priority {
+        /* Something the user is waiting to see */
+        USER_VISIBLE,
+        /* Sync writes and other work nobody is waiting on */
+        BACKGROUND
+    }
+
+    private final String mName;
+    private final int mQueueCapacity;
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /* Guarded by this */
+    private int mMaxQueueDepth;
+    private long mCompleted;
+    private long mRejected;
+    private long mTotalWaitNanos;
+    private long mMaxWaitNanos;
+    private long mTotalRunNanos;
+    private long mMaxRunNanos;
+
+    /**
+     * @param name           Name of the executor, also the prefix of its thread names
+     * @param threadCount    Number of threads, started on demand and kept
+     * @param queueCapacity  Maximum number of tasks waiting for a thread
+     * @param threadPriority Linux priority of the threads, see {@link android.os.Process}
+     */
+    public PriorityExecutor(String name, int threadCount, int queueCapacity, int threadPriority) {
+        super(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new BoundedPriorityQueue(queueCapacity),
+                new NamedThreadFactory(name, threadPriority));
+        mName = name;
+        mQueueCapacity = queueCapacity;
+    }
+
+    /**
+     * Runs the task with {@link Priority#USER_VISIBLE}. This is what {@code submit} and callers
+     * that only know {@link java.util.concurrent.Executor} get.
+     */
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(command, Priority.USER_VISIBLE);
+    }
+
+    /**
+     * Runs the task once every queued task of a higher or the same priority has started.
+     * @throws RejectedExecutionException If the queue is full or the executor is shut down
+     */
+    public void execute(@NonNull Runnable command, Priority priority) {
+        Task task = command instanceof Task ? (Task) command
+                : new Task(command, priority, mSequence.getAndIncrement());
+        try {
+            super.execute(task);
+        } catch (RejectedExecutionException e) {
+            onRejected();
+            if (isShutdown()) throw e;
+            throw new RejectedExecutionException(mName + " queue is full (" + mQueueCapacity + ")",
+                    e);
+        }
+        int depth = getQueue().size();
+        synchronized (this) {
+            mMaxQueueDepth = Math.max(mMaxQueueDepth, depth);
+        }
+    }
+
+    private synchronized void onRejected() {
+        mRejected++;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        Task task = (Task) r;
+        task.mStartNanos = System.nanoTime();
+        long waitNanos = task.mStartNanos - task.mEnqueueNanos;
+        synchronized (this) {
+            mTotalWaitNanos += waitNanos;
+            mMaxWaitNanos = Math.max(mMaxWaitNanos, waitNanos);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        long runNanos = System.nanoTime() - ((Task) r).mStartNanos;
+        synchronized (this) {
+            mCompleted++;
+            mTotalRunNanos += runNanos;
+            mMaxRunNanos = Math.max(mMaxRunNanos, runNanos);
+        }
+    }
+
+    public String getName() { return mName; }
+
+    /**
+     * Returns a snapshot of the counters since the executor was created.
+     */
+    public synchronized ExecutorMetrics getMetrics() {
+        return new ExecutorMetrics(mName, getQueue().size(), mMaxQueueDepth, mQueueCapacity,
+                mCompleted, mRejected, mTotalWaitNanos, mMaxWaitNanos,
+                mTotalRunNanos, mMaxRunNanos);
+    }
+
+    /**
+     * Priority queue that refuses an offer once it holds {@code capacity} tasks, which makes
+     * {@link ThreadPoolExecutor} reject the task. The size check and the insert happen under one
+     * lock, so concurrent callers can not push the queue past its bound; a concurrent take only
+     * makes room.
+     */
+    private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+        private final int mCapacity;
+
+        BoundedPriorityQueue(int capacity) {
+            super(capacity);
+            mCapacity = capacity;
+        }
+
+        @Override
+        public synchronized boolean offer(Runnable task) {
+            return size() < mCapacity && super.offer(task);
+        }
+    }
+
+    /**
+     * A queued task, ordered by priority and then by submission.
+     */
+    private static final class Task implements Runnable, Comparable<Task> {
+
+        private final Runnable mCommand;
+        private final Priority mPriority;
+        private final long mSequence;
+        private final long mEnqueueNanos = System.nanoTime();
+        private long mStartNanos;
+
+        Task(Runnable command, Priority priority, long sequence) {
+            mCommand = command;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mCommand.run();
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            int byPriority = mPriority.compareTo(other.mPriority);
+            if (byPriority != 0) return byPriority;
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+}
@@ -21,8 +21,14 @@ import android.support.v7.preference.PreferenceManager;
 
 import com.example.android.sunshine.R;
 
-public class SunshinePreferences {
+import java.util.List;
 
+/**
+ * Reads and writes the app's preferences. The values used on hot paths are served from an
+ * in-memory {@link PreferenceSnapshot} that is swapped whenever one of them changes, so they cost
+ * no SharedPreferences or resource lookup.
+ */
+public class SunshinePreferences {
 
     public static final String PREF_CITY_NAME = "Seoul";
 
@@ -33,16 +39,91 @@ public class SunshinePreferences {
     public static final String PREF_COORD_LAT = "coord_lat";
     public static final String PREF_COORD_LONG = "coord_long";
 
+    /*
+     * Validators (ETag and Last-Modified) returned by the weather server are stored per location,
+     * so the next sync for that location can ask the server whether anything has changed.
+     */
+    private static final String PREF_FORECAST_ETAG_PREFIX = "forecast_etag_";
+    private static final String PREF_FORECAST_LAST_MODIFIED_PREFIX = "forecast_last_modified_";
+
+    /* State of the adaptive sync schedule */
+    private static final String PREF_SYNC_INTERVAL = "sync_interval_millis";
+    private static final String PREF_SYNC_SCHEDULED_DELAY = "sync_scheduled_delay_millis";
+    private static final String PREF_SYNC_VOLATILITY = "sync_volatility";
+    private static final String PREF_LAST_SUCCESSFUL_SYNC = "last_successful_sync";
+
+    /* Saved locations are stored as one string, e.g. "Busan,KR; Tokyo,JP" */
+    private static final String SAVED_LOCATIONS_SEPARATOR = ";";
+
     /*
      * Set default location as Seoul, KR and its coordination as default coordination
      */
     private static final String DEFAULT_WEATHER_LOCATION = "Seoul,KR";
     private static final double[] DEFAULT_WEATHER_COORDINATES = {37.5665, 126.9780};
 
+    private static final Object LOCK = new Object();
+    /* The current snapshot, null until first read */
+    private static volatile PreferenceSnapshot sSnapshot;
+    private static volatile PreferenceSnapshot.Reader sReader;
+    /* SharedPreferences only keeps a weak reference to its listeners */
+    private static SharedPreferences.OnSharedPreferenceChangeListener sSnapshotListener;
+
     /* Set Seoul city office as default map location. */
     private static final String DEFAULT_MAP_LOCATION =
             "서울 중구 세종대로 110";
 
+    /**
+     * Returns the current values of the hot preferences. The snapshot never changes, take a new
+     * one to see later changes.
+     *
+     * @param context Used to load the snapshot the first time
+     */
+    public static PreferenceSnapshot getSnapshot(Context context) {
+        PreferenceSnapshot snapshot = sSnapshot;
+        if (snapshot == null) {
+            synchronized (LOCK) {
+                if (sSnapshot == null) {
+                    Context appContext = context.getApplicationContext();
+                    SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(appContext);
+                    sReader = new PreferenceSnapshot.Reader(appContext, PREF_SYNC_INTERVAL,
+                            PREF_SYNC_SCHEDULED_DELAY, PREF_SYNC_VOLATILITY,
+                            PREF_LAST_SUCCESSFUL_SYNC,
+                            DEFAULT_WEATHER_LOCATION, SAVED_LOCATIONS_SEPARATOR);
+                    /* Changes made anywhere, e.g. by the settings screen, swap the snapshot */
+                    sSnapshotListener = SunshinePreferences::onPreferenceChanged;
+                    sp.registerOnSharedPreferenceChangeListener(sSnapshotListener);
+                    sSnapshot = sReader.read(sp);
+                }
+                snapshot = sSnapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    /*
+     * Swaps the snapshot if the changed key is part of it. This is the listener registered by
+     * getSnapshot; listeners run in no particular order, so other listeners must not expect the
+     * snapshot to be fresh yet.
+     */
+    static void onPreferenceChanged(SharedPreferences sp, String key) {
+        PreferenceSnapshot.Reader reader = sReader;
+        if (reader != null && reader.isSnapshotKey(key)) {
+            refreshSnapshot(sp);
+        }
+    }
+
+    /*
+     * Reads the snapshot again. The listener runs on the main thread after a change, so writers
+     * in this class also call this to make their change visible right away.
+     */
+    private static void refreshSnapshot(SharedPreferences sp) {
+        synchronized (LOCK) {
+            if (sReader != null) {
+                sSnapshot = sReader.read(sp);
+            }
+        }
+    }
+
     /**
      * Helper method to handle setting location details in Preferences (City Name, Latitude,
      * Longitude)
@@ -99,14 +180,18 @@ public class SunshinePreferences {
      * "94043,USA" if SharedPreferences have not been implemented yet.
      */
     public static String getPreferredWeatherLocation(Context context) {
-        /* Read from SharedPreferences and return preferred location */
-        SharedPreferences sharedPreferences =
-                PreferenceManager.getDefaultSharedPreferences(context);
-
-        String location = sharedPreferences.getString(context.getString(R.string.pref_location_key),
-                getDefaultWeatherLocation());
+        return getSnapshot(context).getPreferredLocation();
+    }
 
-        return location;
+    /**
+     * Returns every location that should be synced: the preferred location first, followed by
+     * the other saved locations in the order the user entered them. Duplicates are dropped.
+     *
+     * @param context Context used to get the SharedPreferences
+     * @return The locations to sync, never empty
+     */
+    public static List<String> getSavedWeatherLocations(Context context) {
+        return getSnapshot(context).getSavedLocations();
     }
 
     /**
@@ -116,16 +201,7 @@ public class SunshinePreferences {
      * @return true If metric display should be used
      */
     public static boolean isMetric(Context context) {
-        /* Read from SharedPreferences and return preferred unit */
-        SharedPreferences sharedPreferences =
-                PreferenceManager.getDefaultSharedPreferences(context);
-
-        String unit = "metric";
-        String preferredUnit = sharedPreferences.getString(context.getString(R.string.pref_units_key),
-                unit);
-
-        // Return true if the preferred unit is metric
-        return unit.equals(preferredUnit);
+        return getSnapshot(context).isMetric();
     }
 
     /**
@@ -169,25 +245,11 @@ public class SunshinePreferences {
      * @return UNIX time of when the last notification was shown
      */
     public static long getLastNotificationTimeInMillis(Context context) {
-        /* Key for accessing the time at which Sunshine last displayed a notification */
-        String lastNotificationKey = context.getString(R.string.pref_last_notification);
-
-        /* As usual, we use the default SharedPreferences to access the user's preferences */
-        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
-
         /*
-         * Here, we retrieve the time in milliseconds when the last notification was shown. If
-         * SharedPreferences doesn't have a value for lastNotificationKey, we return 0. The reason
-         * we return 0 is because we compare the value returned from this method to the current
-         * system time. If the difference between the last notification time and the current time
-         * is greater than one day, we will show a notification again. When we compare the two
-         * values, we subtract the last notification time from the current system time. If the
-         * time of the last notification was 0, the difference will always be greater than the
-         * number of milliseconds in a day and we will show another notification.
+         * If no notification was shown yet this is 0. We compare it to the current system time,
+         * and with 0 the difference is always greater than a day, so a notification is shown.
          */
-        long lastNotificationTime = sp.getLong(lastNotificationKey, 0);
-
-        return lastNotificationTime;
+        return getSnapshot(context).getLastNotificationTime();
     }
 
     /**
@@ -218,6 +280,7 @@ public class SunshinePreferences {
         String lastNotificationKey = context.getString(R.string.pref_last_notification);
         editor.putLong(lastNotificationKey, timeOfNotification);
         editor.apply();
+        refreshSnapshot(sp);
     }
 
 
@@ -229,22 +292,8 @@ public class SunshinePreferences {
      * @return true if the user prefers to see notifications, false otherwise
      */
     public static boolean areNotificationsEnabled(Context context) {
-        /* Key for accessing the preference for showing notifications */
-        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
-        /*
-         * In Sunshine, the user has the ability to say whether she would like notifications
-         * enabled or not. If no preference has been chosen, we want to be able to determine
-         * whether or not to show them. To do this, we reference a bool stored in bools.xml.
-         */
-        boolean shouldDisplayNotificationsByDefault = context
-                .getResources()
-                .getBoolean(R.bool.show_notifications_by_default);
-        /* As usual, we use the default SharedPreferences to access the user's preferences */
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-        /* If a value is stored with the key, we extract it here. If not, use a default. */
-        boolean shouldDisplayNotifications = sp
-                .getBoolean(displayNotificationsKey, shouldDisplayNotificationsByDefault);
-        return shouldDisplayNotifications;
+        /* Defaults to R.bool.show_notifications_by_default if the user never chose */
+        return getSnapshot(context).areNotificationsEnabled();
     }
 
     /**
@@ -254,25 +303,11 @@ public class SunshinePreferences {
      * @return UNIX time of when the last occurred
      */
     public static long getLastSyncTimeInMillis(Context context) {
-        /* Key for accessing the time at which Sunshine last synced the db */
-        String lastSyncKey = context.getString(R.string.pref_last_sync);
-
-        /* As usual, we use the default SharedPreferences to access the user's preferences */
-        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
-
         /*
-         * Here, we retrieve the time in milliseconds when the last sync was occurred. If
-         * SharedPreferences doesn't have a value for lastSyncKey, we return 0. The reason
-         * we return 0 is because we compare the value returned from this method to the current
-         * system time. If the difference between the last sync time and the current time
-         * is greater than 30 minutes, we will allow another sync. When we compare the two
-         * values, we subtract the last sync time from the current system time. If the
-         * time of the last sync time was 0, the difference will always be greater than the
-         * number of milliseconds in 30 minutes and we will allow another sync.
+         * If there was no sync yet this is 0, so the difference to the current time is always
+         * greater than 30 minutes and another sync is allowed.
          */
-        long lastSyncTime = sp.getLong(lastSyncKey, 0);
-
-        return lastSyncTime;
+        return getSnapshot(context).getLastSyncTime();
     }
 
     /**
@@ -303,6 +338,123 @@ public class SunshinePreferences {
         String lastSyncKey = context.getString(R.string.pref_last_sync);
         editor.putLong(lastSyncKey, timeOfSync);
         editor.apply();
+        refreshSnapshot(sp);
+    }
+
+    /**
+     * Returns the sync interval picked by the adaptive scheduler, 0 if it never ran.
+     *
+     * @param context Used to access SharedPreferences
+     * @return Interval in milliseconds
+     */
+    public static long getSyncIntervalMillis(Context context) {
+        return getSnapshot(context).getSyncIntervalMillis();
+    }
+
+    /**
+     * Returns the delay of the sync window the adaptive scheduler last handed to the job
+     * dispatcher, 0 if it never scheduled one.
+     *
+     * @param context Used to access SharedPreferences
+     * @return Delay in milliseconds
+     */
+    public static long getScheduledSyncDelayMillis(Context context) {
+        return getSnapshot(context).getScheduledSyncDelayMillis();
+    }
+
+    /**
+     * Returns the average forecast volatility seen by the adaptive scheduler.
+     *
+     * @param context Used to access SharedPreferences
+     * @param defaultVolatility Returned if the scheduler never saw a volatility
+     * @return Volatility between 0 and 1, or the default
+     */
+    public static float getSyncVolatility(Context context, float defaultVolatility) {
+        return getSnapshot(context).getSyncVolatility(defaultVolatility);
+    }
+
+    /**
+     * Returns the last time a sync fetched a forecast or learned that it had not changed. Unlike
+     * {@link #getLastSyncTimeInMillis(Context)}, failed syncs do not count.
+     *
+     * @param context Used to access SharedPreferences
+     * @return UNIX time of the last successful sync, 0 if there was none
+     */
+    public static long getLastSuccessfulSyncTimeInMillis(Context context) {
+        return getSnapshot(context).getLastSuccessfulSyncTime();
+    }
+
+    /**
+     * Saves the state of the adaptive sync scheduler so it survives the process.
+     *
+     * @param context Used to access SharedPreferences
+     * @param intervalMillis Current sync interval
+     * @param scheduledDelayMillis Delay of the window last handed to the job dispatcher
+     * @param volatility Average forecast volatility
+     * @param lastSuccessfulSync UNIX time of the last successful sync
+     */
+    public static void saveSyncSchedule(Context context, long intervalMillis,
+                                        long scheduledDelayMillis, float volatility,
+                                        long lastSuccessfulSync) {
+        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
+        sp.edit()
+                .putLong(PREF_SYNC_INTERVAL, intervalMillis)
+                .putLong(PREF_SYNC_SCHEDULED_DELAY, scheduledDelayMillis)
+                .putFloat(PREF_SYNC_VOLATILITY, volatility)
+                .putLong(PREF_LAST_SUCCESSFUL_SYNC, lastSuccessfulSync)
+                .apply();
+        refreshSnapshot(sp);
+    }
+
+    /**
+     * Returns the ETag the weather server sent with the last forecast stored for a location.
+     *
+     * @param context  Used to access SharedPreferences
+     * @param location The location the forecast was requested for
+     * @return The stored ETag, or null if there is none
+     */
+    public static String getForecastETag(Context context, String location) {
+        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getString(PREF_FORECAST_ETAG_PREFIX + location, null);
+    }
+
+    /**
+     * Returns the Last-Modified value the weather server sent with the last forecast stored for
+     * a location.
+     *
+     * @param context  Used to access SharedPreferences
+     * @param location The location the forecast was requested for
+     * @return The stored Last-Modified value, or null if there is none
+     */
+    public static String getForecastLastModified(Context context, String location) {
+        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getString(PREF_FORECAST_LAST_MODIFIED_PREFIX + location, null);
+    }
+
+    /**
+     * Saves the validators of the forecast that was just stored for a location. Null values
+     * remove the corresponding validator.
+     *
+     * @param context      Used to access SharedPreferences
+     * @param location     The location the forecast was requested for
+     * @param eTag         ETag response header, may be null
+     * @param lastModified Last-Modified response header, may be null
+     */
+    public static void saveForecastValidators(Context context, String location,
+                                              String eTag, String lastModified) {
+        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        putOrRemove(editor, PREF_FORECAST_ETAG_PREFIX + location, eTag);
+        putOrRemove(editor, PREF_FORECAST_LAST_MODIFIED_PREFIX + location, lastModified);
+        editor.apply();
+    }
+
+    private static void putOrRemove(SharedPreferences.Editor editor, String key, String value) {
+        if (value == null) {
+            editor.remove(key);
+        } else {
+            editor.putString(key, value);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package com.example.android.sunshine.data;
+
+import android.util.LruCache;
+import android.util.SparseArray;
+
+import com.example.android.sunshine.data.database.WeatherEntry;
+
+/**
+ * Application wide, bounded cache of full {@link WeatherEntry} rows, looked up by location and
+ * date or by id. The detail screen reads through it, so reopening a day renders without waiting
+ * for the DB.
+ * <p>
+ * Rows get in when the detail screen reads them from the DB, and are read again after a sync
+ * changed them while the screen is open. The list only loads the columns it shows, so it does
+ * not fill the cache. The sync write invalidates exactly the days it changed. Each
+ * invalidation bumps a generation number; a load that started before an invalidation is not put,
+ * so a read racing a sync cannot bring back a stale row.
+ */
+public final class WeatherEntryCache {
+
+    /* Two weeks for a handful of locations */
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    private static volatile WeatherEntryCache sInstance;
+
+    private final LruCache<String, WeatherEntry> mEntries;
+    /* Id -> key of the entries in mEntries */
+    private final SparseArray<String> mKeysById = new SparseArray<>();
+    private long mGeneration;
+
+    private int mHits;
+    private int mMisses;
+
+    public WeatherEntryCache(int maxEntries) {
+        mEntries = new LruCache<String, WeatherEntry>(maxEntries) {
+            @Override
+            protected void entryRemoved(boolean evicted, String key, WeatherEntry oldValue,
+                                        WeatherEntry newValue) {
+                /* Every change goes through a synchronized method of this class */
+                mKeysById.remove(oldValue.getId());
+            }
+        };
+    }
+
+    public static WeatherEntryCache getInstance() {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    sInstance = new WeatherEntryCache(DEFAULT_MAX_ENTRIES);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private static String keyFor(String location, long date) {
+        return location + '|' + date;
+    }
+
+    /**
+     * Returns the cached row of a location for a day, or null on a miss.
+     */
+    public synchronized WeatherEntry get(String location, long date) {
+        return count(mEntries.get(keyFor(location, date)));
+    }
+
+    /**
+     * Returns the cached row with the given id, or null on a miss.
+     */
+    public synchronized WeatherEntry getById(int id) {
+        String key = mKeysById.get(id);
+        return count(key == null ? null : mEntries.get(key));
+    }
+
+    private WeatherEntry count(WeatherEntry entry) {
+        if (entry == null) {
+            mMisses++;
+        } else {
+            mHits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the current generation. Pass it to {@link #put} after loading rows from the DB.
+     */
+    public synchronized long getGeneration() { return mGeneration; }
+
+    /**
+     * Caches a row loaded from the DB, unless the cache was invalidated since the load started.
+     *
+     * @param entry      A row as stored, with its id
+     * @param generation {@link #getGeneration()} from before the load
+     */
+    public synchronized void put(WeatherEntry entry, long generation) {
+        if (entry == null || generation != mGeneration) return;
+        mEntries.put(keyFor(entry.getLocation(), entry.getDate()), entry);
+        mKeysById.put(entry.getId(), keyFor(entry.getLocation(), entry.getDate()));
+    }
+
+    /**
+     * Drops the rows of a location for the given days. Call after the write has committed.
+     */
+    public synchronized void invalidate(String location, long[] dates) {
+        if (dates.length == 0) return;
+        mGeneration++;
+        for (long date : dates) {
+            mEntries.remove(keyFor(location, date));
+        }
+    }
+
+    /**
+     * Drops every row.
+     */
+    public synchronized void invalidateAll() {
+        mGeneration++;
+        mEntries.evictAll();
+    }
+
+    public synchronized int getHitCount() { return mHits; }
+
+    public synchronized int getMissCount() { return mMisses; }
+
+    /** Share of lookups that were hits, between 0 and 1 */
+    public synchronized float getHitRate() {
+        int lookups = mHits + mMisses;
+        return lookups == 0 ? 0 : (float) mHits / lookups;
+    }
+
+    public synchronized int size() { return mEntries.size(); }
+
+    @Override
+    public synchronized String toString() {
+        return "WeatherEntryCache hits " + mHits
+                + ", misses " + mMisses
+                + ", size " + mEntries.size() + "/" + mEntries.maxSize();
+    }
+}
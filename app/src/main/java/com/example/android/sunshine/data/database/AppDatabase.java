@@ -1,17 +1,24 @@
 package com.example.android.sunshine.data.database;
 
+import android.arch.persistence.db.SupportSQLiteDatabase;
 import android.arch.persistence.room.Database;
 import android.arch.persistence.room.Room;
 import android.arch.persistence.room.RoomDatabase;
 import android.arch.persistence.room.TypeConverters;
+import android.arch.persistence.room.migration.Migration;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.android.sunshine.data.SunshinePreferences;
+
 /**
  * Database class for Sunshine
+ * Schemas are not exported: after running the migrations Room checks every table against the
+ * entities compiled into the app, which is what MigrationTest relies on.
  */
 
-@Database(entities = {WeatherEntry.class}, version = 1, exportSchema = false)
+@Database(entities = {WeatherEntry.class, ArchivedWeatherEntry.class, WeatherRollup.class},
+        version = 3, exportSchema = false)
 @TypeConverters(DateConverter.class)
 public abstract class AppDatabase extends RoomDatabase {
 
@@ -23,8 +30,11 @@ public abstract class AppDatabase extends RoomDatabase {
     public synchronized static AppDatabase getsInstance(Context context){
         if (sInstance == null){
             synchronized (LOCK){
+                /* Rows stored before version 2 were fetched for the preferred location */
+                String location = SunshinePreferences.getPreferredWeatherLocation(context);
                 sInstance = Room.databaseBuilder(context.getApplicationContext(),
                         AppDatabase.class, AppDatabase.DATABASE_NAME)
+                        .addMigrations(buildMigration1To2(location), MIGRATION_2_3)
                         .build();
                 Log.d(LOG_TAG, "Made a new instance");
             }
@@ -34,5 +44,78 @@ public abstract class AppDatabase extends RoomDatabase {
         return sInstance;
     }
 
+    /**
+     * Version 2 adds the location column and replaces the unique index on date with a unique
+     * index on (location, date). SQLite cannot change constraints of an existing table, so the
+     * table is copied into a new one.
+     *
+     * @param location The location existing rows belong to
+     * @return The migration from version 1 to 2
+     */
+    public static Migration buildMigration1To2(final String location) {
+        return new Migration(1, 2) {
+            @Override
+            public void migrate(SupportSQLiteDatabase database) {
+                database.execSQL("CREATE TABLE IF NOT EXISTS `weather_new` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                        + "`location` TEXT NOT NULL, "
+                        + "`date` INTEGER NOT NULL, "
+                        + "`weather_id` INTEGER NOT NULL, "
+                        + "`description` TEXT, "
+                        + "`min` REAL NOT NULL, "
+                        + "`max` REAL NOT NULL, "
+                        + "`humidity` REAL NOT NULL, "
+                        + "`pressure` REAL NOT NULL, "
+                        + "`wind` REAL NOT NULL, "
+                        + "`degrees` REAL NOT NULL)");
+                database.execSQL("INSERT INTO `weather_new` (`id`, `location`, `date`, "
+                                + "`weather_id`, `description`, `min`, `max`, `humidity`, "
+                                + "`pressure`, `wind`, `degrees`) "
+                                + "SELECT `id`, ?, `date`, `weather_id`, `description`, `min`, "
+                                + "`max`, `humidity`, `pressure`, `wind`, `degrees` FROM `weather`",
+                        new Object[]{location});
+                database.execSQL("DROP TABLE `weather`");
+                database.execSQL("ALTER TABLE `weather_new` RENAME TO `weather`");
+                database.execSQL("CREATE UNIQUE INDEX `" + WeatherEntry.INDEX_LOCATION_DATE
+                        + "` ON `weather` (`location`, `date`)");
+            }
+        };
+    }
+
+    /**
+     * Version 3 adds the archive of past days and their weekly and monthly rollups.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `weather_archive` ("
+                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`location` TEXT NOT NULL, "
+                    + "`date` INTEGER NOT NULL, "
+                    + "`weather_id` INTEGER NOT NULL, "
+                    + "`description` TEXT, "
+                    + "`min` REAL NOT NULL, "
+                    + "`max` REAL NOT NULL, "
+                    + "`humidity` REAL NOT NULL, "
+                    + "`pressure` REAL NOT NULL, "
+                    + "`wind` REAL NOT NULL, "
+                    + "`degrees` REAL NOT NULL)");
+            database.execSQL("CREATE UNIQUE INDEX `" + ArchivedWeatherEntry.INDEX_LOCATION_DATE
+                    + "` ON `weather_archive` (`location`, `date`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `weather_rollup` ("
+                    + "`location` TEXT NOT NULL, "
+                    + "`period` INTEGER NOT NULL, "
+                    + "`period_start` INTEGER NOT NULL, "
+                    + "`day_count` INTEGER NOT NULL, "
+                    + "`min` REAL NOT NULL, "
+                    + "`max` REAL NOT NULL, "
+                    + "`total_min` REAL NOT NULL, "
+                    + "`total_max` REAL NOT NULL, "
+                    + "PRIMARY KEY(`location`, `period`, `period_start`))");
+        }
+    };
+
     public abstract WeatherDao weatherDao();
+
+    public abstract WeatherArchiveDao weatherArchiveDao();
 }
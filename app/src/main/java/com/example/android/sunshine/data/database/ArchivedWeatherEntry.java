@@ -0,0 +1,90 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+import android.support.annotation.NonNull;
+
+/**
+ * Table schema for a day that has passed. Days are moved here from the weather table before
+ * they are pruned, and expire according to the retention policy.
+ */
+
+@Entity(tableName = "weather_archive",
+        indices = {@Index(name = ArchivedWeatherEntry.INDEX_LOCATION_DATE,
+                value = {"location", "date"}, unique = true)})
+public class ArchivedWeatherEntry {
+
+    static final String INDEX_LOCATION_DATE = "index_weather_archive_location_date";
+
+    @PrimaryKey(autoGenerate = true)
+    private int id;
+    @NonNull
+    private String location;
+    private long date;
+    @ColumnInfo(name = "weather_id")
+    private int weatherId;
+    private String description;
+    private double min;
+    private double max;
+    private double humidity;
+    private double pressure;
+    @ColumnInfo(name = "wind")
+    private double windSpeed;
+    @ColumnInfo(name = "degrees")
+    private double windDirection;
+
+    /**
+     * Archives a day as it was last stored in the weather table.
+     * @param entry The stored day
+     */
+    @Ignore
+    public ArchivedWeatherEntry(WeatherEntry entry) {
+        this(0, entry.getLocation(), entry.getDate(), entry.getWeatherId(),
+                entry.getDescription(), entry.getMin(), entry.getMax(), entry.getHumidity(),
+                entry.getPressure(), entry.getWindSpeed(), entry.getWindDirection());
+    }
+
+    // This one is used by Room
+    public ArchivedWeatherEntry(int id, @NonNull String location, long date, int weatherId,
+                                String description, double min, double max, double humidity,
+                                double pressure, double windSpeed, double windDirection) {
+        this.id = id;
+        this.location = location;
+        this.date = date;
+        this.weatherId = weatherId;
+        this.description = description;
+        this.min = min;
+        this.max = max;
+        this.humidity = humidity;
+        this.pressure = pressure;
+        this.windSpeed = windSpeed;
+        this.windDirection = windDirection;
+    }
+
+    /* Getters for the fields */
+    public int getId() { return id; }
+
+    @NonNull
+    public String getLocation() { return location; }
+
+    public long getDate() { return date; }
+
+    public int getWeatherId() { return weatherId; }
+
+    public String getDescription() { return description; }
+
+    public double getMin() { return min; }
+
+    public double getMax() { return max; }
+
+    public double getHumidity() { return humidity; }
+
+    public double getPressure() { return pressure; }
+
+    public double getWindSpeed() { return windSpeed; }
+
+    public double getWindDirection() { return windDirection; }
+}
@@ -0,0 +1,37 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.ColumnInfo;
+
+/**
+ * The columns of a {@link WeatherEntry} that the forecast list shows. Loading only these keeps
+ * the cursor window and the objects made on every LiveData emission small; the full entry is
+ * only loaded for the detail screen.
+ */
+public class ListWeatherEntry {
+
+    private final long date;
+    @ColumnInfo(name = "weather_id")
+    private final int weatherId;
+    private final String description;
+    private final double min;
+    private final double max;
+
+    // Used by Room
+    public ListWeatherEntry(long date, int weatherId, String description, double min, double max) {
+        this.date = date;
+        this.weatherId = weatherId;
+        this.description = description;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getDate() { return date; }
+
+    public int getWeatherId() { return weatherId; }
+
+    public String getDescription() { return description; }
+
+    public double getMin() { return min; }
+
+    public double getMax() { return max; }
+}
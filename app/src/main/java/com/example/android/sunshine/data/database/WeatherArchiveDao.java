@@ -0,0 +1,100 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.OnConflictStrategy;
+import android.arch.persistence.room.Query;
+import android.arch.persistence.room.Transaction;
+
+import java.util.List;
+
+/**
+ * Access to the weather history: the archived days and their weekly and monthly rollups.
+ * <p>
+ * Ranges of a few weeks can be read day by day with {@link #getArchivedWeather}. Longer ranges
+ * should be read from {@link #getRollups}, which touches one row per week or month and still
+ * works after the archived days have expired.
+ */
+@Dao
+public abstract class WeatherArchiveDao {
+
+    /**
+     * Moves stored days into the archive and adds each of them to its week and month rollup.
+     * Days that are already archived are skipped, so archiving the same day twice does not count
+     * it twice.
+     *
+     * @param days Days taken from the weather table
+     * @return Number of days that were archived
+     */
+    @Transaction
+    public int archive(List<WeatherEntry> days) {
+        int archived = 0;
+        for (WeatherEntry day : days) {
+            if (insertArchivedWeather(new ArchivedWeatherEntry(day)) == -1) continue;
+            archived++;
+            addToRollup(WeatherRollup.PERIOD_WEEK, day);
+            addToRollup(WeatherRollup.PERIOD_MONTH, day);
+        }
+        return archived;
+    }
+
+    private void addToRollup(int period, WeatherEntry day) {
+        long periodStart = WeatherRollup.periodStartOf(period, day.getDate());
+        WeatherRollup first = new WeatherRollup(day.getLocation(), period, periodStart, 1,
+                day.getMin(), day.getMax(), day.getMin(), day.getMax());
+        /* The period already has days, fold this one into them */
+        if (insertRollup(first) == -1) {
+            updateRollup(day.getLocation(), period, periodStart, day.getMin(), day.getMax());
+        }
+    }
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract long insertArchivedWeather(ArchivedWeatherEntry entry);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract long insertRollup(WeatherRollup rollup);
+
+    @Query("UPDATE weather_rollup SET day_count = day_count + 1, "
+            + "min = MIN(min, :min), max = MAX(max, :max), "
+            + "total_min = total_min + :min, total_max = total_max + :max "
+            + "WHERE location = :location AND period = :period AND period_start = :periodStart")
+    abstract void updateRollup(String location, int period, long periodStart,
+                               double min, double max);
+
+    /**
+     * Expires archived days older than the given date. Rollups are kept.
+     *
+     * @param date The date to delete all prior archived days from (exclusive)
+     * @return Number of deleted days
+     */
+    @Query("DELETE FROM weather_archive WHERE date < :date")
+    public abstract int deleteArchivedWeatherBefore(long date);
+
+    /**
+     * Selects the archived days of a location in a date range, inclusive, in date order.
+     *
+     * @param location The location to select history for
+     * @param from First date of the range
+     * @param to Last date of the range
+     * @return The archived days
+     */
+    @Query("SELECT * FROM weather_archive "
+            + "WHERE location = :location AND date BETWEEN :from AND :to ORDER BY date")
+    public abstract List<ArchivedWeatherEntry> getArchivedWeather(String location,
+                                                                  long from, long to);
+
+    /**
+     * Selects the rollups of a location whose period starts in a date range, inclusive, in date
+     * order.
+     *
+     * @param location The location to select history for
+     * @param period {@link WeatherRollup#PERIOD_WEEK} or {@link WeatherRollup#PERIOD_MONTH}
+     * @param from First date of the range
+     * @param to Last date of the range
+     * @return One rollup per week or month that has archived days
+     */
+    @Query("SELECT * FROM weather_rollup WHERE location = :location AND period = :period "
+            + "AND period_start BETWEEN :from AND :to ORDER BY period_start")
+    public abstract List<WeatherRollup> getRollups(String location, int period,
+                                                   long from, long to);
+}
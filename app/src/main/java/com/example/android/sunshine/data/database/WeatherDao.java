@@ -1,36 +1,76 @@
 package com.example.android.sunshine.data.database;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.paging.DataSource;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.OnConflictStrategy;
 import android.arch.persistence.room.Query;
+import android.arch.persistence.room.Transaction;
+import android.arch.persistence.room.Update;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Dao
-public interface WeatherDao {
+public abstract class WeatherDao {
 
     /**
-     * Selects all {@link WeatherEntry} entries after a give date, inclusive. The LiveData will
-     * be kept in sync with the database, so that it will automatically notify observers when the
-     * values in the table change.
+     * Selects the list columns of all entries of a location after a give date, inclusive, in
+     * date order, one page at a time. Pages are read with LIMIT/OFFSET on the (location, date)
+     * index, so only the rows that are shown are loaded. The data source is invalidated when the
+     * table changes, so that the paged list is reloaded.
      *
+     * @param location The location to select weather for
      * @param date A {@link long} from which to select all future weather
-     * @return List of all {@link WeatherEntry} objects after date
+     * @return Factory of data sources over the {@link ListWeatherEntry} objects after date
      */
-    @Query("SELECT * FROM weather WHERE date >= :date")
-    LiveData<List<WeatherEntry>> getWeatherForecasts(long date);
+    @Query("SELECT date, weather_id, description, min, max FROM weather "
+            + "WHERE location = :location AND date >= :date ORDER BY date")
+    public abstract DataSource.Factory<Integer, ListWeatherEntry> getWeatherForecasts(
+            String location, long date);
+
+    /**
+     * Synchronous, unpaged form of {@link #getWeatherForecasts(String, long)}, for background
+     * callers that need every row.
+     */
+    @Query("SELECT date, weather_id, description, min, max FROM weather "
+            + "WHERE location = :location AND date >= :date ORDER BY date")
+    public abstract List<ListWeatherEntry> getWeatherForecastsNow(String location, long date);
 
 
     /**
-     * Gets the weather for a single day
+     * Selects the first day of a location, on or after a date, whose condition is one of the
+     * given ids. Use {@link com.example.android.sunshine.utilities.WeatherConditionCatalog} to
+     * get the ids of a category, e.g. for the next rainy day.
+     *
+     * @param location The location to select weather for
+     * @param date First date to consider
+     * @param weatherIds OpenWeatherMap condition ids to look for
+     * @return The first matching {@link WeatherEntry}, or null if no day matches
+     */
+    @Query("SELECT * FROM weather WHERE location = :location AND date >= :date "
+            + "AND weather_id IN (:weatherIds) ORDER BY date LIMIT 1")
+    public abstract WeatherEntry getFirstWeatherWithConditionNow(String location, long date,
+                                                                 int[] weatherIds);
+
+    /**
+     * Gets the weather of a location for a single day
      *
+     * @param location The location you want weather for
      * @param date The date you want weather for
      * @return {@link WeatherEntry} with weather for a single day
      */
-    @Query("SELECT * FROM weather WHERE date = :date")
-    LiveData<WeatherEntry> getWeatherByDate(long date);
+    @Query("SELECT * FROM weather WHERE location = :location AND date = :date")
+    public abstract LiveData<WeatherEntry> getWeatherByDate(String location, long date);
+
+    /**
+     * Synchronous form of {@link #getWeatherByDate(String, long)}, for background callers.
+     */
+    @Query("SELECT * FROM weather WHERE location = :location AND date = :date")
+    public abstract WeatherEntry getWeatherByDateNow(String location, long date);
 
     /**
      * Gets the weather for a single day
@@ -39,25 +79,138 @@ public interface WeatherDao {
      * @return {@link WeatherEntry} with weather for a single day
      */
     @Query("SELECT * FROM weather WHERE id = :id")
-    LiveData<WeatherEntry> getWeatherById(int id);
+    public abstract LiveData<WeatherEntry> getWeatherById(int id);
 
     /**
      * Inserts a list of {@link WeatherEntry} into the weather table. If there is a conflicting id
-     * or date the weather entry uses the {@link OnConflictStrategy} of replacing the weather
+     * or location and date the weather entry uses the {@link OnConflictStrategy} of replacing the weather
      * forecast. The required uniqueness of these values is defined in the {@link WeatherEntry}.
      *
      * @param weather A list of weather forecasts to insert
      */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void bulkInsert(WeatherEntry... weather);
+    public abstract void bulkInsert(WeatherEntry... weather);
 
     /**
-     * Deletes any weather data older than the given day
+     * Deletes any weather data of a location older than the given day
      *
+     * @param location The location to delete weather of
      * @param date The date to delete all prior weather from (exclusive)
+     * @return Number of deleted rows
+     */
+    @Query("DELETE FROM weather WHERE location = :location AND date < :date")
+    public abstract int deleteOldWeather(String location, long date);
+
+    /**
+     * Selects the stored days of a location before a given date, exclusive. These are the days
+     * {@link #upsertForecast} will prune, so they can be archived first.
+     *
+     * @param location The location to select weather for
+     * @param date The first date that is kept
+     * @return List of the {@link WeatherEntry} objects before date
+     */
+    @Query("SELECT * FROM weather WHERE location = :location AND date < :date ORDER BY date")
+    public abstract List<WeatherEntry> getOldWeatherNow(String location, long date);
+
+    /**
+     * Deletes the weather of every location that is not in the given list, i.e. locations the
+     * user no longer follows.
+     *
+     * @param locations The locations to keep
+     * @return Number of deleted rows
+     */
+    @Query("DELETE FROM weather WHERE location NOT IN (:locations)")
+    public abstract int deleteWeatherNotIn(List<String> locations);
+
+    /**
+     * Selects every stored {@link WeatherEntry} of a location without observing the table. Used
+     * to diff a sync against what is already stored.
+     *
+     * @param location The location to select weather for
+     * @return List of all {@link WeatherEntry} objects of the location
+     */
+    @Query("SELECT * FROM weather WHERE location = :location")
+    abstract List<WeatherEntry> getWeatherNow(String location);
+
+    /**
+     * Inserts new days. Location and date are unique together, so this fails instead of
+     * replacing an existing day.
+     */
+    @Insert(onConflict = OnConflictStrategy.ABORT)
+    abstract void insertWeather(List<WeatherEntry> weather);
+
+    /**
+     * Updates existing days in place, matched by id.
+     */
+    @Update
+    abstract int updateWeather(List<WeatherEntry> weather);
+
+    /**
+     * Writes a freshly fetched forecast of one location as a single transaction. Incoming entries
+     * are compared with the stored rows of the location by date: changed days are updated in
+     * place, keeping their id, new days are inserted, days that did not change are not written,
+     * and days before the first incoming entry are deleted.
+     * <p>
+     * Room notifies observers of the table once per transaction and only if a row was written,
+     * so a sync that changed nothing does not wake up any LiveData.
+     *
+     * @param location The location the forecast was fetched for
+     * @param weather The fetched forecast, first day first
+     * @return How many rows were inserted, updated, left unchanged and deleted
      */
-    @Query("DELETE FROM weather WHERE date < :date")
-    void deleteOldWeather(long date);
+    @Transaction
+    public WeatherWriteResult upsertForecast(String location, WeatherEntry... weather) {
+        if (weather.length == 0) {
+            return new WeatherWriteResult(location, 0, 0, 0, 0, 0, new long[0]);
+        }
+
+        long today = weather[0].getDate();
+        int deleted = 0;
+        List<Long> changedDates = new ArrayList<>();
+
+        Map<Long, WeatherEntry> stored = new HashMap<>();
+        for (WeatherEntry entry : getWeatherNow(location)) {
+            if (entry.getDate() < today) {
+                deleted++;
+                changedDates.add(entry.getDate());
+            } else {
+                stored.put(entry.getDate(), entry);
+            }
+        }
+
+        List<WeatherEntry> toInsert = new ArrayList<>();
+        List<WeatherEntry> toUpdate = new ArrayList<>();
+        int unchanged = 0;
+        int revised = 0;
+        for (WeatherEntry entry : weather) {
+            entry.setLocation(location);
+            WeatherEntry current = stored.get(entry.getDate());
+            if (current == null) {
+                toInsert.add(entry);
+                changedDates.add(entry.getDate());
+            } else if (current.hasSameForecastAs(entry)) {
+                unchanged++;
+            } else {
+                /* Keep the row, and with it the id other screens may hold */
+                entry.setId(current.getId());
+                toUpdate.add(entry);
+                if (entry.differsSignificantlyFrom(current)) revised++;
+                changedDates.add(entry.getDate());
+            }
+        }
+
+        /* Every statement that touches no row is skipped, so it cannot trigger an invalidation */
+        if (deleted > 0) deleteOldWeather(location, today);
+        if (!toUpdate.isEmpty()) updateWeather(toUpdate);
+        if (!toInsert.isEmpty()) insertWeather(toInsert);
+
+        long[] dates = new long[changedDates.size()];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = changedDates.get(i);
+        }
+        return new WeatherWriteResult(location, toInsert.size(), toUpdate.size(), revised,
+                unchanged, deleted, dates);
+    }
 
     /**
      * Selects all ids entries after a give date, inclusive. This is for easily seeing
@@ -66,16 +219,17 @@ public interface WeatherDao {
      * @return Number of future weather forecasts stored in the database
      */
     @Query("SELECT COUNT(id) FROM weather")
-    int countAll();
+    public abstract int countAll();
 
     /**
-     * Selects all ids entries after a give date, inclusive. This is for easily seeing
-     * what entries are in the database without pulling all of the data.
+     * Selects all ids entries of a location after a give date, inclusive. This is for easily
+     * seeing what entries are in the database without pulling all of the data.
      *
+     * @param location The location to count weather of
      * @param date The date to select after (inclusive)
      * @return Number of future weather forecasts stored in the database
      */
-    @Query("SELECT COUNT(id) FROM weather WHERE date >= :date")
-    int countAllFutureWeather(long date);
+    @Query("SELECT COUNT(id) FROM weather WHERE location = :location AND date >= :date")
+    public abstract int countAllFutureWeather(String location, long date);
 
-}
\ No newline at end of file
+}
@@ -5,19 +5,32 @@ import android.arch.persistence.room.Entity;
 import android.arch.persistence.room.Ignore;
 import android.arch.persistence.room.Index;
 import android.arch.persistence.room.PrimaryKey;
+import android.support.annotation.NonNull;
 
 import java.util.Date;
 
 
 /**
- * Table schema for a single weather forecast (per day)
+ * Table schema for a single weather forecast (per location and day)
  */
 
-@Entity(tableName = "weather", indices = {@Index(value = {"date"}, unique = true)})
+@Entity(tableName = "weather",
+        indices = {@Index(name = WeatherEntry.INDEX_LOCATION_DATE,
+                value = {"location", "date"}, unique = true)})
 public class WeatherEntry {
 
+    /* Every read is scoped to a location and ordered by date, so both go into one index */
+    static final String INDEX_LOCATION_DATE = "index_weather_location_date";
+
+    /* Smallest revisions of a day, in degrees Celsius and in wind speed units, worth noticing */
+    static final double SIGNIFICANT_TEMPERATURE_CHANGE = 3;
+    static final double SIGNIFICANT_WIND_SPEED_CHANGE = 5;
+
     @PrimaryKey(autoGenerate = true)
     private int id;
+    /* The location query the forecast was fetched for, e.g. "Seoul,KR" */
+    @NonNull
+    private String location;
     private long date;
     @ColumnInfo(name = "weather_id")
     private int weatherId;
@@ -37,7 +50,8 @@ public class WeatherEntry {
     /* Constructors */
     /**
      * This constructor is used by OpenWeatherJsonParser. When the network fetch has JSON data, it
-     * converts this data to WeatherEntry objects using this constructor.
+     * converts this data to WeatherEntry objects using this constructor. The location is set
+     * when the entry is written, see {@link WeatherDao#upsertForecast}.
      * @param date Date of weather
      * @param weatherId Image id for weather
      * @param min Min temperature
@@ -64,10 +78,12 @@ public class WeatherEntry {
     }
 
     // This one is used by Room
-    public WeatherEntry(int id, long date, int weatherId, String description, double min, double max, double humidity,
+    public WeatherEntry(int id, @NonNull String location, long date, int weatherId,
+                        String description, double min, double max, double humidity,
                         double pressure, double windSpeed, double windDirection){
 
         this.id = id;
+        this.location = location;
         this.date = date;
         this.weatherId = weatherId;
         this.description = description;
@@ -84,6 +100,10 @@ public class WeatherEntry {
     public int getId() { return id; }
     public void setId(int id) {this.id = id; }
 
+    @NonNull
+    public String getLocation() { return location; }
+    public void setLocation(@NonNull String location) { this.location = location; }
+
     public long getDate() { return date; }
     public void setDate(long date) { this.date = date; }
 
@@ -111,11 +131,42 @@ public class WeatherEntry {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
+    /**
+     * Returns true if the other entry holds the same forecast for the same day. The id and the
+     * location are not compared, so a freshly parsed entry can be matched against a stored row.
+     */
+    public boolean hasSameForecastAs(WeatherEntry other) {
+        return date == other.date
+                && weatherId == other.weatherId
+                && Double.compare(min, other.min) == 0
+                && Double.compare(max, other.max) == 0
+                && Double.compare(humidity, other.humidity) == 0
+                && Double.compare(pressure, other.pressure) == 0
+                && Double.compare(windSpeed, other.windSpeed) == 0
+                && Double.compare(windDirection, other.windDirection) == 0
+                && (description == null ? other.description == null
+                        : description.equals(other.description));
+    }
+
+    /**
+     * Returns true if the other entry's forecast for the day differs enough to matter to someone
+     * reading it: another condition, or a high, low or wind speed that moved by at least the
+     * thresholds above. The server revises the numbers a little on almost every fetch, and those
+     * small revisions do not count.
+     */
+    public boolean differsSignificantlyFrom(WeatherEntry other) {
+        return weatherId != other.weatherId
+                || Math.abs(min - other.min) >= SIGNIFICANT_TEMPERATURE_CHANGE
+                || Math.abs(max - other.max) >= SIGNIFICANT_TEMPERATURE_CHANGE
+                || Math.abs(windSpeed - other.windSpeed) >= SIGNIFICANT_WIND_SPEED_CHANGE;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
 
-        builder.append("date " + getDate()
+        builder.append("location " + getLocation()
+                + ", date " + getDate()
                 + ", weatherId " + getWeatherId()
                 + ", min " + getMin()
                 + ", max " + getMax()
@@ -0,0 +1,105 @@
+package com.example.android.sunshine.data.database;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.support.annotation.NonNull;
+
+import com.example.android.sunshine.utilities.SunshineDateUtils;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Table schema for the temperature aggregate of one location over one week or month. Rollups
+ * are updated as days are archived and are kept after the archived days expire, so long ranges
+ * can be read without scanning days.
+ * <p>
+ * The sums are stored instead of the means, so that a day can be added without reading the days
+ * that were added before.
+ */
+
+@Entity(tableName = "weather_rollup", primaryKeys = {"location", "period", "period_start"})
+public class WeatherRollup {
+
+    /* Values of the period column */
+    public static final int PERIOD_WEEK = 0;
+    public static final int PERIOD_MONTH = 1;
+
+    @NonNull
+    private String location;
+    private int period;
+    /* First day of the week (Monday) or month, normalized like WeatherEntry dates */
+    @ColumnInfo(name = "period_start")
+    private long periodStart;
+    @ColumnInfo(name = "day_count")
+    private int dayCount;
+    private double min;
+    private double max;
+    @ColumnInfo(name = "total_min")
+    private double totalMin;
+    @ColumnInfo(name = "total_max")
+    private double totalMax;
+
+    // This one is used by Room
+    public WeatherRollup(@NonNull String location, int period, long periodStart, int dayCount,
+                         double min, double max, double totalMin, double totalMax) {
+        this.location = location;
+        this.period = period;
+        this.periodStart = periodStart;
+        this.dayCount = dayCount;
+        this.min = min;
+        this.max = max;
+        this.totalMin = totalMin;
+        this.totalMax = totalMax;
+    }
+
+    /* Getters for the fields */
+    @NonNull
+    public String getLocation() { return location; }
+
+    public int getPeriod() { return period; }
+
+    public long getPeriodStart() { return periodStart; }
+
+    public int getDayCount() { return dayCount; }
+
+    /** Lowest min temperature of the period */
+    public double getMin() { return min; }
+
+    /** Highest max temperature of the period */
+    public double getMax() { return max; }
+
+    public double getTotalMin() { return totalMin; }
+
+    public double getTotalMax() { return totalMax; }
+
+    /** Mean of the daily min temperatures */
+    public double getMeanMin() { return dayCount == 0 ? 0 : totalMin / dayCount; }
+
+    /** Mean of the daily max temperatures */
+    public double getMeanMax() { return dayCount == 0 ? 0 : totalMax / dayCount; }
+
+    /**
+     * Returns the start of the period of the given kind that contains a normalized date.
+     * @param period {@link #PERIOD_WEEK} or {@link #PERIOD_MONTH}
+     * @param date Normalized UTC date, as stored in the weather table
+     * @return Normalized UTC date of the first day of the period
+     */
+    public static long periodStartOf(int period, long date) {
+        /* Stored dates are already UTC midnights, so no time zone offset is applied */
+        long dayNumber = date / SunshineDateUtils.DAY_IN_MILLIS;
+        switch (period) {
+            case PERIOD_WEEK:
+                /* Day 0 of the epoch was a Thursday, weeks start on Monday */
+                long daysSinceMonday = (dayNumber + 3) % 7;
+                return (dayNumber - daysSinceMonday) * SunshineDateUtils.DAY_IN_MILLIS;
+            case PERIOD_MONTH:
+                Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                calendar.setTimeInMillis(dayNumber * SunshineDateUtils.DAY_IN_MILLIS);
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                return calendar.getTimeInMillis();
+            default:
+                throw new IllegalArgumentException("Unknown rollup period " + period);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.sunshine.data.database;
+
+/**
+ * Row counts of one forecast write, as returned by {@link WeatherDao#upsertForecast}.
+ */
+public final class WeatherWriteResult {
+
+    private final String mLocation;
+    private final int mInserted;
+    private final int mUpdated;
+    private final int mRevised;
+    private final int mUnchanged;
+    private final int mDeleted;
+    private final long[] mChangedDates;
+
+    WeatherWriteResult(String location, int inserted, int updated, int revised, int unchanged,
+                       int deleted, long[] changedDates) {
+        mLocation = location;
+        mInserted = inserted;
+        mUpdated = updated;
+        mRevised = revised;
+        mUnchanged = unchanged;
+        mDeleted = deleted;
+        mChangedDates = changedDates;
+    }
+
+    public String getLocation() { return mLocation; }
+
+    public int getInserted() { return mInserted; }
+
+    public int getUpdated() { return mUpdated; }
+
+    /**
+     * Updated days whose forecast changed significantly, see
+     * {@link WeatherEntry#differsSignificantlyFrom(WeatherEntry)}
+     */
+    public int getRevised() { return mRevised; }
+
+    public int getUnchanged() { return mUnchanged; }
+
+    public int getDeleted() { return mDeleted; }
+
+    /** Dates of the rows that were inserted, updated or deleted */
+    public long[] getChangedDates() { return mChangedDates; }
+
+    /**
+     * Share of the days that were already stored and are still forecast whose forecast changed
+     * significantly, between 0 and 1. Returns -1 if none of the days was stored before.
+     */
+    public float getChangeRatio() {
+        int stored = mUpdated + mUnchanged;
+        return stored == 0 ? -1 : (float) mRevised / stored;
+    }
+
+    /** True if any row was written, i.e. observers of the table were notified */
+    public boolean hasChanges() { return mInserted + mUpdated + mDeleted > 0; }
+
+    @Override
+    public String toString() {
+        return "inserted " + mInserted
+                + ", updated " + mUpdated
+                + " (" + mRevised + " significantly)"
+                + ", unchanged " + mUnchanged
+                + ", deleted " + mDeleted;
+    }
+}
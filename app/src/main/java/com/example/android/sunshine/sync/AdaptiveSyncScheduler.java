@@ -0,0 +1,163 @@
+package com.example.android.sunshine.sync;
+
+import android.util.Log;
+
+/**
+ * Picks the interval of the periodic sync from how much the forecast has been changing.
+ * <p>
+ * After every sync the volatility of its result, the share of stored days whose forecast was
+ * revised significantly, is folded into a moving average. While the average is high (a front moving in) the
+ * interval is halved, down to the minimum; while it is low the interval grows by half, up to
+ * what the staleness bound allows. In between the interval is kept. Whatever the interval, the
+ * next sync is due before the last successful one is older than the staleness bound.
+ * <p>
+ * Time and the actual job scheduling are behind {@link Clock} and {@link JobDriver}, so the
+ * policy can be tested without waiting or a job dispatcher.
+ */
+public final class AdaptiveSyncScheduler {
+
+    private static final String TAG = AdaptiveSyncScheduler.class.getSimpleName();
+
+    /* Weight of the latest sync in the moving average of volatility */
+    private static final float VOLATILITY_WEIGHT = 0.5f;
+    /* At or above this average the forecast counts as changing quickly */
+    static final float HIGH_VOLATILITY = 0.3f;
+    /* At or below this average the forecast counts as stable */
+    static final float LOW_VOLATILITY = 0.05f;
+
+    public interface Clock {
+        /** Current wall clock time in milliseconds */
+        long currentTimeMillis();
+    }
+
+    public interface JobDriver {
+        /**
+         * (Re)schedules the periodic sync to run between the given delays from now.
+         */
+        void schedule(long windowStartMillis, long windowEndMillis);
+    }
+
+    /**
+     * Bounds of the schedule, in milliseconds.
+     */
+    public static final class Config {
+        final long mMinIntervalMillis;
+        final long mInitialIntervalMillis;
+        final long mMaxStalenessMillis;
+        final long mFlexMillis;
+
+        /**
+         * @param minIntervalMillis     Shortest interval, however volatile the forecast
+         * @param initialIntervalMillis Interval before anything is known about volatility
+         * @param maxStalenessMillis    Longest the data may go without a successful sync
+         * @param flexMillis            How late the job dispatcher may run a sync
+         */
+        public Config(long minIntervalMillis, long initialIntervalMillis,
+                      long maxStalenessMillis, long flexMillis) {
+            mMinIntervalMillis = minIntervalMillis;
+            mInitialIntervalMillis = initialIntervalMillis;
+            mMaxStalenessMillis = maxStalenessMillis;
+            mFlexMillis = flexMillis;
+        }
+
+        /** Longest interval that keeps a sync due within the staleness bound */
+        long getMaxIntervalMillis() {
+            return Math.max(mMinIntervalMillis, mMaxStalenessMillis - mFlexMillis);
+        }
+    }
+
+    private final Config mConfig;
+    private final Clock mClock;
+    private final JobDriver mJobDriver;
+
+    private long mIntervalMillis;
+    private float mVolatility;
+    private long mLastSuccessMillis;
+    /* Delay of the window that was last handed to the driver, 0 if none. Persisted, because
+     * the job dispatcher keeps the job across process restarts */
+    private long mScheduledDelayMillis;
+
+    /**
+     * @param intervalMillis       Interval restored from an earlier run, 0 if there is none
+     * @param scheduledDelayMillis Delay of the window scheduled by an earlier run, 0 if none
+     * @param volatility           Average volatility restored from an earlier run, or
+     *                             {@link SyncResult#UNKNOWN_VOLATILITY}
+     * @param lastSuccessMillis    Wall clock time of the last successful sync, 0 if none
+     */
+    public AdaptiveSyncScheduler(Config config, Clock clock, JobDriver jobDriver,
+                                 long intervalMillis, long scheduledDelayMillis,
+                                 float volatility, long lastSuccessMillis) {
+        mConfig = config;
+        mClock = clock;
+        mJobDriver = jobDriver;
+        mIntervalMillis = clamp(intervalMillis > 0 ? intervalMillis : config.mInitialIntervalMillis);
+        mScheduledDelayMillis = scheduledDelayMillis;
+        mVolatility = volatility;
+        mLastSuccessMillis = lastSuccessMillis;
+    }
+
+    /**
+     * Schedules the periodic sync with the current interval when the app starts, unless an
+     * earlier run already scheduled it. That job is still pending and is replaced after the
+     * next sync.
+     */
+    public void start() {
+        if (mScheduledDelayMillis > 0) return;
+        reschedule();
+    }
+
+    /**
+     * Adapts the interval to a finished sync and reschedules the periodic sync if it changed.
+     */
+    public void onSyncFinished(SyncResult result) {
+        SyncResult.Status status = result.getStatus();
+        if (status == SyncResult.Status.UPDATED || status == SyncResult.Status.NOT_MODIFIED) {
+            mLastSuccessMillis = mClock.currentTimeMillis();
+        }
+
+        float volatility = result.getVolatility();
+        if (volatility != SyncResult.UNKNOWN_VOLATILITY) {
+            mVolatility = mVolatility == SyncResult.UNKNOWN_VOLATILITY ? volatility
+                    : VOLATILITY_WEIGHT * volatility + (1 - VOLATILITY_WEIGHT) * mVolatility;
+
+            if (mVolatility >= HIGH_VOLATILITY) {
+                mIntervalMillis = clamp(mIntervalMillis / 2);
+            } else if (mVolatility <= LOW_VOLATILITY) {
+                mIntervalMillis = clamp(mIntervalMillis + mIntervalMillis / 2);
+            }
+        }
+
+        reschedule();
+    }
+
+    private void reschedule() {
+        long delay = mIntervalMillis;
+
+        /* Do not let the data grow older than the bound, e.g. after failed syncs */
+        if (mLastSuccessMillis > 0) {
+            long untilStale = mLastSuccessMillis + mConfig.mMaxStalenessMillis
+                    - mConfig.mFlexMillis - mClock.currentTimeMillis();
+            delay = Math.max(mConfig.mMinIntervalMillis, Math.min(delay, untilStale));
+        }
+
+        if (delay == mScheduledDelayMillis) return;
+        mScheduledDelayMillis = delay;
+        mJobDriver.schedule(delay, delay + mConfig.mFlexMillis);
+        Log.d(TAG, "Next sync in " + delay / 60000 + " min (interval " + mIntervalMillis / 60000
+                + " min, volatility " + mVolatility + ")");
+    }
+
+    private long clamp(long intervalMillis) {
+        return Math.max(mConfig.mMinIntervalMillis,
+                Math.min(mConfig.getMaxIntervalMillis(), intervalMillis));
+    }
+
+    public long getIntervalMillis() { return mIntervalMillis; }
+
+    public float getVolatility() { return mVolatility; }
+
+    public long getLastSuccessMillis() { return mLastSuccessMillis; }
+
+    /** Delay of the window last handed to the job driver */
+    public long getScheduledDelayMillis() { return mScheduledDelayMillis; }
+}
@@ -0,0 +1,50 @@
+package com.example.android.sunshine.sync;
+
+import com.example.android.sunshine.data.database.WeatherEntry;
+
+/**
+ * The parsed forecast of one location, as fetched during a sync and before it is written to the
+ * DB. Instances are created on the network threads and handed to the single DB write pass.
+ */
+final class LocationForecast {
+
+    private final String mLocation;
+    private final SyncResult.Status mStatus;
+    private final WeatherEntry[] mEntries;
+    private final String mETag;
+    private final String mLastModified;
+
+    private LocationForecast(String location, SyncResult.Status status, WeatherEntry[] entries,
+                             String eTag, String lastModified) {
+        mLocation = location;
+        mStatus = status;
+        mEntries = entries;
+        mETag = eTag;
+        mLastModified = lastModified;
+    }
+
+    static LocationForecast updated(String location, WeatherEntry[] entries,
+                                    String eTag, String lastModified) {
+        return new LocationForecast(location, SyncResult.Status.UPDATED, entries, eTag, lastModified);
+    }
+
+    static LocationForecast notModified(String location) {
+        return new LocationForecast(location, SyncResult.Status.NOT_MODIFIED, null, null, null);
+    }
+
+    static LocationForecast failed(String location) {
+        return new LocationForecast(location, SyncResult.Status.FAILED, null, null, null);
+    }
+
+    String getLocation() { return mLocation; }
+
+    SyncResult.Status getStatus() { return mStatus; }
+
+    boolean hasEntries() { return mStatus == SyncResult.Status.UPDATED; }
+
+    WeatherEntry[] getEntries() { return mEntries; }
+
+    String getETag() { return mETag; }
+
+    String getLastModified() { return mLastModified; }
+}
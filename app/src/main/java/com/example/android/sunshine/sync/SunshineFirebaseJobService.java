@@ -3,19 +3,26 @@ package com.example.android.sunshine.sync;
 import android.os.AsyncTask;
 import android.util.Log;
 
+import com.example.android.sunshine.utilities.CancellationToken;
 import com.firebase.jobdispatcher.JobParameters;
 import com.firebase.jobdispatcher.JobService;
 
 public class SunshineFirebaseJobService extends JobService {
     private AsyncTask mBackgroundTask;
+    /* Stops the running sync when the job is stopped */
+    private CancellationToken mCancellationToken;
+
     @Override
     public boolean onStartJob(JobParameters job) {
 
+        CancellationToken token =
+                CancellationToken.withTimeout(SunshineSyncTask.DEFAULT_SYNC_TIMEOUT_MILLIS);
+        mCancellationToken = token;
         mBackgroundTask = new AsyncTask() {
             @Override
             protected Object doInBackground(Object[] objects) {
-                SunshineSyncTask.syncWeather(SunshineFirebaseJobService.this);
-                Log.d("SunshineJobDispat", "Ran Scheduled sync");
+                SyncResult result = SunshineSyncTask.syncWeather(SunshineFirebaseJobService.this, token);
+                Log.d("SunshineJobDispat", "Ran Scheduled sync: " + result);
                 return null;
             }
 
@@ -32,7 +39,12 @@ public class SunshineFirebaseJobService extends JobService {
 
     @Override
     public boolean onStopJob(JobParameters job) {
-       if (mBackgroundTask != null) mBackgroundTask.cancel(true);
+        /*
+         * Interrupting the AsyncTask is not enough, the sync does not check for interrupts.
+         * The token aborts its HTTP requests and rolls back a write that has not committed.
+         */
+        if (mCancellationToken != null) mCancellationToken.cancel();
+        if (mBackgroundTask != null) mBackgroundTask.cancel(false);
         return true;
     }
 }
@@ -1,18 +1,43 @@
 package com.example.android.sunshine.sync;
 
 import android.content.Context;
-import android.support.v4.app.NotificationCompat;
+import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.util.Log;
 
+import com.example.android.sunshine.R;
+import com.example.android.sunshine.data.AppExecutors;
+import com.example.android.sunshine.data.PriorityExecutor;
 import com.example.android.sunshine.data.SunshinePreferences;
+import com.example.android.sunshine.data.WeatherEntryCache;
 import com.example.android.sunshine.data.database.AppDatabase;
+import com.example.android.sunshine.data.database.WeatherArchiveDao;
+import com.example.android.sunshine.data.database.WeatherDao;
 import com.example.android.sunshine.data.database.WeatherEntry;
+import com.example.android.sunshine.data.database.WeatherWriteResult;
+import com.example.android.sunshine.utilities.CancellationToken;
+import com.example.android.sunshine.utilities.ForecastResponseCache;
 import com.example.android.sunshine.utilities.NetworkUtils;
 import com.example.android.sunshine.utilities.NotificationUtils;
 import com.example.android.sunshine.utilities.OpenWeatherJsonUtils;
+import com.example.android.sunshine.utilities.SunshineDateUtils;
+import com.example.android.sunshine.utilities.SunshineSyncUtils;
+import com.example.android.sunshine.utilities.WeatherHttpClient;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class that contains "sync" logic of the app.
@@ -22,85 +47,539 @@ public class SunshineSyncTask {
 
     private static final String TAG = SunshineSyncTask.class.getSimpleName();
 
+    /* Conditional request and validator headers */
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+
+    /* Keys of the SyncCoordinator, a whole sync and the fetch of one location never collide */
+    private static final String SYNC_KEY_PREFIX = "sync:";
+    private static final String FETCH_KEY_PREFIX = "fetch:";
+
+    /* A sync that has not finished by then gives up, whoever started it */
+    public static final long DEFAULT_SYNC_TIMEOUT_MILLIS = 2 * DateUtils.MINUTE_IN_MILLIS;
+
+    /**
+     * Method that is called from the SyncIntentService, the FirebaseJobService and the initial
+     * sync. Concurrent calls for the same locations are coalesced by the {@link SyncCoordinator}:
+     * only the first caller fetches and writes, the others wait and share its result. Syncs of
+     * different location lists still share the fetch of every location they have in common.
+     * @param context
+     * @return The outcome of the sync for the preferred location
+     */
+    public static SyncResult syncWeather(Context context){
+        return syncWeather(context, CancellationToken.withTimeout(DEFAULT_SYNC_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * Same as {@link #syncWeather(Context)}, but stops as soon as the token is canceled or its
+     * deadline passes. The token is checked between fetching, parsing and writing, in-flight HTTP
+     * requests are aborted and a write that has not committed yet is rolled back. Followers share
+     * the outcome of the leader's token.
+     * @param context
+     * @param token Cancels the sync
+     * @return The outcome of the sync for the preferred location
+     */
+    public static SyncResult syncWeather(Context context, CancellationToken token){
+        List<String> locations = SunshinePreferences.getSavedWeatherLocations(context);
+        String syncKey = SYNC_KEY_PREFIX + TextUtils.join("|", locations);
+
+        try {
+            SyncCoordinator.Outcome<SyncResult> outcome = SyncCoordinator.getInstance()
+                    .execute(syncKey, () -> runSync(context, locations, token));
+            Log.d(TAG, (outcome.isLeader() ? "Ran" : "Joined") + " sync for " + syncKey
+                    + ": " + outcome.getValue());
+            return outcome.getValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SyncResult.failed();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationToken.CanceledException) {
+                Log.d(TAG, "Sync for " + syncKey + " stopped: " + e.getCause().getMessage());
+                return SyncResult.canceled();
+            }
+            e.printStackTrace();
+            return SyncResult.failed();
+        }
+    }
+
     /**
-     * Method that is called from the SyncIntentService
      * Basically, it calls a private method that fetches data from the net and inserts it to the DB
-     * If the notification constraints match, then it shows notification
+     * If the notification constraints match, then it shows notification. The time and size of
+     * every stage is recorded in {@link SyncTelemetry}.
+     * @param context
+     * @param locations Locations to sync, the preferred one first
+     * @param token Cancels the sync
+     * @return The outcome of the sync for the preferred location
+     */
+    private static SyncResult runSync(Context context, List<String> locations,
+                                      CancellationToken token)
+            throws InterruptedException, CancellationToken.CanceledException {
+        SyncTrace trace = new SyncTrace(System.currentTimeMillis());
+        SyncResult.Status status = SyncResult.Status.FAILED;
+        try {
+            SyncResult result = fetchAndInsertData(context, locations, token, trace);
+
+            // Let the schedule follow how much the forecast is changing
+            SunshineSyncUtils.onSyncFinished(context, result);
+
+            // Save the synced time
+            SunshinePreferences.saveLastSyncTime(context, System.currentTimeMillis());
+            Log.d(TAG, "Saved the last sync time");
+
+            // Check if notifications are enables
+            boolean areEnabled = SunshinePreferences.areNotificationsEnabled(context);
+
+            /* Check if a day has passed since the last notification */
+            long elapsedTime = SunshinePreferences.getEllapsedTimeSinceLastNotification(context);
+            boolean hasDayPassed = elapsedTime >= DateUtils.DAY_IN_MILLIS;
+
+            /*
+             * If both conditions met and there is new weather for today then show a notification.
+             * Today's entry comes from the sync itself, so the DB is not read again.
+             */
+            if (areEnabled && hasDayPassed && !token.isCanceled()) {
+                WeatherEntry today =
+                        result.getEntry(SunshineDateUtils.getNormalizedUtcDateForToday());
+                if (today != null) {
+                    long notifyStart = System.nanoTime();
+                    NotificationUtils.notifyUserOfNewWeather(context, today);
+                    trace.setNotify(System.nanoTime() - notifyStart);
+                }
+            }
+
+            status = result.getStatus();
+            return result;
+        } catch (CancellationToken.CanceledException e) {
+            status = SyncResult.Status.CANCELED;
+            throw e;
+        } finally {
+            SyncTelemetry.getInstance().record(trace.finish(status));
+            Log.d(TAG, trace.toString());
+        }
+    }
+
+    /**
+     * Helper method that fetches every location in parallel and then writes the results to the
+     * DB in one pass.
+     * @param context
+     * @param locations Locations to sync, the preferred one first
+     * @param token Cancels the sync
+     * @param trace Records the stages
+     * @return The outcome of the sync for the preferred location
+     */
+    private static SyncResult fetchAndInsertData(Context context, List<String> locations,
+                                                 CancellationToken token, SyncTrace trace)
+            throws InterruptedException, CancellationToken.CanceledException {
+        List<LocationForecast> forecasts = fetchAllLocations(context, locations, token, trace);
+        token.throwIfCanceled();
+
+        /* Every location is stored, so switching to one of them is a read from the DB */
+        List<LocationForecast> toWrite = new ArrayList<>();
+        for (LocationForecast forecast : forecasts) {
+            if (forecast.hasEntries()) {
+                toWrite.add(forecast);
+            }
+        }
+        List<WeatherWriteResult> writeResults =
+                runOnDiskIO(() -> writeForecasts(context, locations, toWrite, token, trace), token);
+
+        LocationForecast preferred = forecasts.get(0);
+        switch (preferred.getStatus()) {
+            case UPDATED:
+                return SyncResult.updated(preferred.getEntries(),
+                        changeRatioOf(preferred.getLocation(), writeResults));
+            case NOT_MODIFIED:
+                return SyncResult.notModified();
+            default:
+                return SyncResult.failed();
+        }
+    }
+
+    /**
+     * Returns how much of the stored forecast of a location the write revised, see
+     * {@link WeatherWriteResult#getChangeRatio()}.
+     */
+    private static float changeRatioOf(String location, List<WeatherWriteResult> writeResults) {
+        for (WeatherWriteResult writeResult : writeResults) {
+            if (writeResult.getLocation().equals(location)) return writeResult.getChangeRatio();
+        }
+        return SyncResult.UNKNOWN_VOLATILITY;
+    }
+
+    /**
+     * Fetches and parses the forecast of every location on the network executor. The wall-clock
+     * time is that of the slowest location; the per-host limit of {@link WeatherHttpClient} keeps
+     * us from opening too many requests against the weather server at once. A fetch the network
+     * executor rejects runs on the sync thread instead.
+     * @param context
+     * @param locations Locations to fetch
+     * @param token Cancels the fetches
+     * @param trace Records the network and parse stages
+     * @return One forecast per location, in the same order
+     */
+    private static List<LocationForecast> fetchAllLocations(Context context, List<String> locations,
+                                                            CancellationToken token, SyncTrace trace)
+            throws InterruptedException, CancellationToken.CanceledException {
+        /* The DB is read on the disk executor, never on the network threads */
+        Map<String, Map<String, String>> conditionalHeaders =
+                runOnDiskIO(() -> buildConditionalHeaders(context, locations), token);
+
+        PriorityExecutor networkIO = AppExecutors.getInstance().getNetworkIO();
+
+        List<FutureTask<LocationForecast>> tasks = new ArrayList<>(locations.size());
+        for (String location : locations) {
+            Map<String, String> headers = conditionalHeaders.get(location);
+            FutureTask<LocationForecast> task = new FutureTask<>(() ->
+                    fetchOnce(context, location, headers, token, trace));
+            tasks.add(task);
+            try {
+                networkIO.execute(task, PriorityExecutor.Priority.BACKGROUND);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+
+        /* Every fetch checks the token itself, so waiting for all of them stays short */
+        List<LocationForecast> forecasts = new ArrayList<>(locations.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                forecasts.add(tasks.get(i).get());
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof CancellationToken.CanceledException)) {
+                    e.printStackTrace();
+                }
+                forecasts.add(LocationForecast.failed(locations.get(i)));
+            }
+        }
+        token.throwIfCanceled();
+        return forecasts;
+    }
+
+    /**
+     * Runs a DB write, or the reads a sync needs before fetching, on the disk executor behind any
+     * queued user-visible read and waits for it.
+     * If the disk executor rejects it, the write runs on the sync thread instead. A write that is
+     * still queued when the token is canceled never runs; one that has started is waited for.
+     * @param write
+     * @param token Cancels the write
+     * @return What the write returned
+     */
+    private static <T> T runOnDiskIO(Callable<T> write, CancellationToken token)
+            throws InterruptedException, CancellationToken.CanceledException {
+        /* Whoever claims the write first decides whether it runs or is canceled */
+        AtomicBoolean claimed = new AtomicBoolean();
+        FutureTask<T> task = new FutureTask<>(() ->
+                claimed.compareAndSet(false, true) ? write.call() : null);
+        CancellationToken.Registration registration = token.onCancel(() -> {
+            if (claimed.compareAndSet(false, true)) task.cancel(false);
+        });
+        try {
+            try {
+                AppExecutors.getInstance().getDiskIO()
+                        .execute(task, PriorityExecutor.Priority.BACKGROUND);
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Disk executor is full, writing on the sync thread");
+                task.run();
+            }
+            return task.get();
+        } catch (CancellationException e) {
+            token.throwIfCanceled();
+            throw e;
+        } catch (ExecutionException e) {
+            /* Rethrow as if the write had run on this thread */
+            Throwable cause = e.getCause();
+            if (cause instanceof CancellationToken.CanceledException) {
+                throw (CancellationToken.CanceledException) cause;
+            }
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        } finally {
+            registration.unregister();
+        }
+    }
+
+    /**
+     * Writes the fetched forecasts in a single DB transaction. Only the rows that changed are
+     * written, so observers are notified at most once and not at all if nothing changed. Days
+     * that have passed are archived before they are pruned, and archived days past the retention
+     * period expire. Rows of locations that are no longer followed are deleted in the same
+     * transaction. If the token is canceled before the transaction commits, it is rolled back and
+     * nothing is written.
      * @param context
+     * @param locations Every location that is followed
+     * @param forecasts Forecasts with entries to store
+     * @param token Cancels the write
+     * @param trace Records the write
+     * @return What was written for each location
      */
-    public static void syncWeather(Context context){
-        fetchAndInsertData(context);
+    private static List<WeatherWriteResult> writeForecasts(Context context, List<String> locations,
+                                       List<LocationForecast> forecasts, CancellationToken token,
+                                       SyncTrace trace)
+            throws CancellationToken.CanceledException {
+        long writeStart = System.nanoTime();
+        AppDatabase db = AppDatabase.getsInstance(context);
+        WeatherDao weatherDao = db.weatherDao();
+        WeatherArchiveDao archiveDao = db.weatherArchiveDao();
+
+        long today = SunshineDateUtils.getNormalizedUtcDateForToday();
+        int retentionDays = context.getResources().getInteger(R.integer.archive_retention_days);
+        long archiveCutoff = today - retentionDays * SunshineDateUtils.DAY_IN_MILLIS;
+
+        List<WeatherWriteResult> writeResults = new ArrayList<>(forecasts.size());
+        int dropped;
+        token.throwIfCanceled();
+        db.beginTransaction();
+        try {
+            for (LocationForecast forecast : forecasts) {
+                token.throwIfCanceled();
+                String location = forecast.getLocation();
+                WeatherEntry[] weatherEntriesArray = forecast.getEntries();
+
+                // Keep the days that are about to be pruned in the history
+                int archived = archiveDao.archive(
+                        weatherDao.getOldWeatherNow(location, weatherEntriesArray[0].getDate()));
+                if (archived > 0) Log.d(TAG, "Archived " + archived + " days of " + location);
+
+                // Diff the new data against the stored rows and write the changes
+                WeatherWriteResult writeResult =
+                        weatherDao.upsertForecast(location, weatherEntriesArray);
+                Log.d(TAG, "Wrote forecast for " + location + ": " + writeResult);
+                writeResults.add(writeResult);
+            }
+
+            dropped = weatherDao.deleteWeatherNotIn(locations);
+            if (dropped > 0) Log.d(TAG, "Deleted " + dropped + " rows of dropped locations");
+
+            int expired = archiveDao.deleteArchivedWeatherBefore(archiveCutoff);
+            if (expired > 0) Log.d(TAG, "Expired " + expired + " archived days");
+
+            /* Last chance to stop, nothing is visible to readers until this commits */
+            token.throwIfCanceled();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        int rowsChanged = dropped;
+        for (WeatherWriteResult writeResult : writeResults) {
+            rowsChanged += writeResult.getInserted() + writeResult.getUpdated()
+                    + writeResult.getDeleted();
+        }
+        trace.setWrite(System.nanoTime() - writeStart, rowsChanged);
+
+        /* Now that the write has committed, drop exactly the cached days it changed */
+        WeatherEntryCache entryCache = WeatherEntryCache.getInstance();
+        if (dropped > 0) {
+            entryCache.invalidateAll();
+        } else {
+            for (WeatherWriteResult writeResult : writeResults) {
+                entryCache.invalidate(writeResult.getLocation(), writeResult.getChangedDates());
+            }
+        }
 
-        // Save the synced time
-        SunshinePreferences.saveLastSyncTime(context, System.currentTimeMillis());
-        Log.d(TAG, "Saved the last sync time");
+        for (LocationForecast forecast : forecasts) {
+            SunshinePreferences.saveForecastValidators(context, forecast.getLocation(),
+                    forecast.getETag(), forecast.getLastModified());
+        }
+        return writeResults;
+    }
 
-        // Check if notifications are enables
-        boolean areEnabled = SunshinePreferences.areNotificationsEnabled(context);
+    /**
+     * Builds the conditional request headers of every location. Validators are only sent when
+     * the DB still holds a forecast for today, otherwise a 304 would leave the user with nothing
+     * to show. Reads the DB, so it runs on the disk executor.
+     * @param context
+     * @param locations
+     * @return Location -> headers to add to its forecast request
+     */
+    private static Map<String, Map<String, String>> buildConditionalHeaders(
+            Context context, List<String> locations) {
+        WeatherDao weatherDao = AppDatabase.getsInstance(context).weatherDao();
+        long today = SunshineDateUtils.getNormalizedUtcDateForToday();
 
-        /* Check if a day has passed since the last notification */
-        long elapsedTime = SunshinePreferences.getEllapsedTimeSinceLastNotification(context);
-        boolean hasDayPassed = elapsedTime >= DateUtils.DAY_IN_MILLIS;
+        Map<String, Map<String, String>> headersByLocation = new HashMap<>();
+        for (String location : locations) {
+            Map<String, String> headers = new HashMap<>();
+            if (weatherDao.countAllFutureWeather(location, today) > 0) {
+                String eTag = SunshinePreferences.getForecastETag(context, location);
+                String lastModified =
+                        SunshinePreferences.getForecastLastModified(context, location);
+                if (eTag != null) headers.put(HEADER_IF_NONE_MATCH, eTag);
+                if (lastModified != null) headers.put(HEADER_IF_MODIFIED_SINCE, lastModified);
+            }
+            headersByLocation.put(location, headers);
+        }
+        return headersByLocation;
+    }
 
-        /* If both conditions met then show a notification */
-        if (areEnabled && hasDayPassed)
-            NotificationUtils.notifyUserOfNewWeather(context);
+    /**
+     * Fetches the forecast of one location, or joins the fetch of it that another sync has in
+     * flight, e.g. one that started before a location was added. The leader's token and trace
+     * are the ones that apply to a shared fetch.
+     * @return The parsed forecast
+     */
+    private static LocationForecast fetchOnce(Context context, String location,
+                                              Map<String, String> conditionalHeaders,
+                                              CancellationToken token, SyncTrace trace)
+            throws Exception {
+        try {
+            return SyncCoordinator.getInstance().execute(FETCH_KEY_PREFIX + location, () ->
+                    fetchForecast(context, location, conditionalHeaders, token, trace))
+                    .getValue();
+        } catch (ExecutionException e) {
+            /* Report the fetch's own failure, not the wrapper */
+            if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+            throw e;
+        }
     }
 
     /**
-     * Helper method that fetches data and parses JSON
+     * Helper method that fetches and parses the forecast of one location, without touching the
+     * DB. A fresh response in the {@link ForecastResponseCache} is used before going to the
+     * network. When the server answers 304 Not Modified, parsing is skipped.
+     * <p>
+     * The body is parsed straight from the file or the HTTP stream; it is never read into a
+     * String first.
      * @param context
-     * @return
+     * @param location
+     * @param conditionalHeaders Validators of the stored forecast, see
+     *                           {@link #buildConditionalHeaders(Context, List)}
+     * @param token Aborts the request and the parse
+     * @param trace Records the network and parse stages
+     * @return The parsed forecast
      */
-    private static WeatherEntry[] fetchWeatherData(Context context) {
-        // Get the location first
-        String location = SunshinePreferences.getPreferredWeatherLocation(context);
+    private static LocationForecast fetchForecast(Context context, String location,
+                                                  Map<String, String> conditionalHeaders,
+                                                  CancellationToken token, SyncTrace trace)
+            throws CancellationToken.CanceledException {
+        token.throwIfCanceled();
 
         // Make URL
         URL weatherRequestUrl = NetworkUtils.buildUrl(location);
 
-        try {
-            // Fetch data
-            String jsonWeatherResponse = NetworkUtils
-                    .getResponseFromHttpUrl(weatherRequestUrl);
+        ForecastResponseCache responseCache = ForecastResponseCache.getInstance(context);
+        String cacheKey = ForecastResponseCache.keyFor(weatherRequestUrl);
 
-            /* Check if network connection was successful */
-            if (jsonWeatherResponse == null)
-                return null;
+        try {
+            ForecastResponseCache.CachedResponse cachedResponse = responseCache.get(cacheKey);
+            if (cachedResponse != null) {
+                Log.d(TAG, "Serving forecast for " + location + " from the response cache");
+                try {
+                    long parseStart = System.nanoTime();
+                    WeatherEntry[] weatherEntriesArray =
+                            OpenWeatherJsonUtils.getWeatherEntriesFromJson(cachedResponse.getBody());
+                    trace.addCachedParse(System.nanoTime() - parseStart,
+                            weatherEntriesArray == null ? 0 : weatherEntriesArray.length);
+                    token.throwIfCanceled();
+                    return toLocationForecast(location, weatherEntriesArray,
+                            cachedResponse.getETag(), cachedResponse.getLastModified());
+                } finally {
+                    cachedResponse.close();
+                }
+            }
 
-            // Parse fetched JSON and get a WeatherEntry array
-            WeatherEntry[] weatherEntries = OpenWeatherJsonUtils
-                    .getFullWeatherStringsFromJson(context, jsonWeatherResponse);
+            // Fetch data through the shared, keep-alive client
+            WeatherHttpClient.Response[] received = new WeatherHttpClient.Response[1];
+            long[] consumeNanos = new long[1];
+            LocationForecast forecast = WeatherHttpClient.getInstance().get(weatherRequestUrl,
+                    conditionalHeaders,
+                    (response, body) -> {
+                        received[0] = response;
+                        long consumeStart = System.nanoTime();
+                        try {
+                            return readForecast(responseCache, cacheKey, location, response, body,
+                                    token);
+                        } finally {
+                            consumeNanos[0] = System.nanoTime() - consumeStart;
+                        }
+                    },
+                    token);
 
-            return weatherEntries;
+            /* The body was parsed while it arrived; whatever was not spent reading was parsing */
+            WeatherHttpClient.Response response = received[0];
+            trace.addFetch(response.getConnectNanos(), response.getFirstByteNanos(),
+                    response.getReadNanos(), response.getWireBytes(),
+                    Math.max(0, consumeNanos[0] - response.getReadNanos()),
+                    forecast.hasEntries() ? forecast.getEntries().length : 0);
+            return forecast;
 
+        } catch (CancellationToken.CanceledException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
-            return null;
+            return LocationForecast.failed(location);
         }
     }
 
     /**
-     * Helper method that inserts fetched data to DB
-     * @param context
+     * Parses a forecast response while it is being received, copying the body into the response
+     * cache as it goes. The cache entry is only kept if the body parsed into a forecast and the
+     * sync was not canceled meanwhile.
+     * @param responseCache
+     * @param cacheKey
+     * @param location
+     * @param response Status and headers of the response
+     * @param body The response body
+     * @param token Cancels the parse
+     * @return The parsed forecast
      */
-    private static void fetchAndInsertData(Context context){
+    static LocationForecast readForecast(ForecastResponseCache responseCache,
+                                         String cacheKey, String location,
+                                         WeatherHttpClient.Response response,
+                                         Reader body, CancellationToken token)
+            throws IOException {
+        /* The stored forecast is still current, nothing else to do */
+        if (response.getCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            Log.d(TAG, "Forecast for " + location + " not modified");
+            return LocationForecast.notModified(location);
+        }
+
+        /* Check if network connection was successful */
+        if (!response.isSuccessful()) {
+            Log.d(TAG, "Fetch for " + location + " failed with HTTP " + response.getCode());
+            return LocationForecast.failed(location);
+        }
 
-        // Fetch the data
-        WeatherEntry[] weatherEntriesArray = fetchWeatherData(context);
-        // Insert the fetched data to the DB
-        if (weatherEntriesArray != null) {
-            Log.d(TAG, "Fetched data from the net");
-            // Delete old data
-            long today = weatherEntriesArray[0].getDate();
-            AppDatabase.getsInstance(context).weatherDao().deleteOldWeather(today);
+        String eTag = response.getHeader(HEADER_ETAG);
+        String lastModified = response.getHeader(HEADER_LAST_MODIFIED);
 
-            // Insert the new data
-            AppDatabase.getsInstance(context).weatherDao().bulkInsert(weatherEntriesArray);
-            Log.d(TAG, "Inserted data to the DB");
+        ForecastResponseCache.Editor editor = responseCache.edit(cacheKey, eTag, lastModified);
+        if (editor == null) {
+            return toLocationForecast(location,
+                    OpenWeatherJsonUtils.getWeatherEntriesFromJson(body), eTag, lastModified);
         }
-        else {
-            Log.d(TAG, "WeatherEntry[] was null");
+
+        /* Any failure, including a parser's runtime exception, must drop the half written entry */
+        boolean committed = false;
+        try {
+            // Parse the JSON as it arrives and get a WeatherEntry array
+            LocationForecast forecast = toLocationForecast(location,
+                    OpenWeatherJsonUtils.getWeatherEntriesFromJson(editor.copyOf(body)),
+                    eTag, lastModified);
+            token.throwIfCanceled();
+
+            /* Only cache responses that parsed into a forecast */
+            if (forecast.hasEntries()) {
+                editor.commit();
+                committed = true;
+            }
+            return forecast;
+        } finally {
+            if (!committed) editor.abort();
+        }
+    }
+
+    private static LocationForecast toLocationForecast(String location,
+                                                       WeatherEntry[] weatherEntriesArray,
+                                                       String eTag, String lastModified) {
+        if (weatherEntriesArray == null || weatherEntriesArray.length == 0) {
+            Log.d(TAG, "WeatherEntry[] was null for " + location);
+            return LocationForecast.failed(location);
         }
+        Log.d(TAG, "Fetched data for " + location);
+        return LocationForecast.updated(location, weatherEntriesArray, eTag, lastModified);
     }
 }
@@ -0,0 +1,87 @@
+package com.example.android.sunshine.sync;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent work of the same key, a whole sync of a list of locations or the fetch of
+ * one location.
+ * <p>
+ * The first caller for a key becomes the leader and runs the work on its own thread. Callers
+ * that arrive while the leader is still running become followers: they wait for the leader's
+ * work to finish and get the same result instead of starting a duplicate fetch. Once the work is
+ * done the key is released, so the next caller starts a fresh sync.
+ */
+public final class SyncCoordinator {
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    private static volatile SyncCoordinator sInstance;
+
+    private final ConcurrentHashMap<String, FutureTask<?>> mInFlight = new ConcurrentHashMap<>();
+
+    public static SyncCoordinator getInstance() {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    sInstance = new SyncCoordinator();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Runs the work for a key, or joins the run that is already in flight for it.
+     *
+     * @param key  Identifies what is synced, e.g. the fetch of a location
+     * @param work The work to run if no other caller is running it
+     * @return The result of the work, and whether this caller ran it
+     * @throws ExecutionException   If the work threw, for the leader and every follower
+     * @throws InterruptedException If a follower is interrupted while waiting
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Outcome<V> execute(String key, Callable<V> work)
+            throws ExecutionException, InterruptedException {
+        FutureTask<V> task = new FutureTask<>(work);
+        FutureTask<?> inFlight = mInFlight.putIfAbsent(key, task);
+        if (inFlight != null) {
+            /* Someone else is already syncing this key, share their result */
+            return new Outcome<>((V) inFlight.get(), false);
+        }
+
+        try {
+            task.run();
+        } finally {
+            mInFlight.remove(key, task);
+        }
+        return new Outcome<>(task.get(), true);
+    }
+
+    /**
+     * Returns true if work for the key is running right now.
+     */
+    public boolean isInFlight(String key) {
+        return mInFlight.containsKey(key);
+    }
+
+    /**
+     * Result of {@link #execute(String, Callable)} as seen by one caller.
+     */
+    public static final class Outcome<V> {
+        private final V mValue;
+        private final boolean mLeader;
+
+        Outcome(V value, boolean leader) {
+            mValue = value;
+            mLeader = leader;
+        }
+
+        public V getValue() { return mValue; }
+
+        /** True if this caller ran the work, false if it joined another caller's run */
+        public boolean isLeader() { return mLeader; }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.sunshine.sync;
+
+import com.example.android.sunshine.data.database.WeatherEntry;
+
+/**
+ * Outcome of a single weather sync.
+ */
+public final class SyncResult {
+
+    public enum Status {
+        /* New forecast data was fetched and written to the DB */
+        UPDATED,
+        /* The server reported that the stored forecast is still current (HTTP 304) */
+        NOT_MODIFIED,
+        /* Nothing could be fetched or parsed */
+        FAILED,
+        /* The sync was stopped or ran past its deadline before it committed anything */
+        CANCELED
+    }
+
+    /* Volatility of a sync that did not tell how much the forecast changed */
+    public static final float UNKNOWN_VOLATILITY = -1;
+
+    private final Status mStatus;
+    private final WeatherEntry[] mEntries;
+    private final float mVolatility;
+
+    private SyncResult(Status status, WeatherEntry[] entries, float volatility) {
+        mStatus = status;
+        mEntries = entries;
+        mVolatility = volatility;
+    }
+
+    static SyncResult updated(WeatherEntry[] entries, float volatility) {
+        return new SyncResult(Status.UPDATED, entries, volatility);
+    }
+
+    static SyncResult notModified() {
+        return new SyncResult(Status.NOT_MODIFIED, null, 0);
+    }
+
+    static SyncResult failed() {
+        return new SyncResult(Status.FAILED, null, UNKNOWN_VOLATILITY);
+    }
+
+    static SyncResult canceled() {
+        return new SyncResult(Status.CANCELED, null, UNKNOWN_VOLATILITY);
+    }
+
+    public Status getStatus() { return mStatus; }
+
+    /** The entries that were written, or null unless the status is UPDATED */
+    public WeatherEntry[] getEntries() { return mEntries; }
+
+    /**
+     * Returns the written entry of a day, or null if this sync wrote none for it.
+     * @param date Normalized UTC date
+     */
+    public WeatherEntry getEntry(long date) {
+        if (mEntries == null) return null;
+        for (WeatherEntry entry : mEntries) {
+            if (entry.getDate() == date) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Share of the stored days of the preferred location that this sync revised, between 0 and 1,
+     * or {@link #UNKNOWN_VOLATILITY}. A forecast the server did not modify has a volatility of 0.
+     */
+    public float getVolatility() { return mVolatility; }
+
+    @Override
+    public String toString() {
+        return "SyncResult " + mStatus
+                + (mEntries != null ? ", entries " + mEntries.length : "")
+                + (mVolatility != UNKNOWN_VOLATILITY ? ", volatility " + mVolatility : "");
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.android.sunshine.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link SyncTrace} of the most recent syncs in a ring buffer of fixed size, and
+ * summarizes each stage over them with percentiles. Nothing leaves the device; the traces are
+ * read by tests and the diagnostics screen.
+ */
+public final class SyncTelemetry {
+
+    /* Enough syncs for several days at the shortest interval */
+    private static final int DEFAULT_CAPACITY = 100;
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    private static volatile SyncTelemetry sInstance;
+
+    private final SyncTrace[] mTraces;
+    /* Index the next trace goes to */
+    private int mNext;
+    private int mSize;
+
+    public SyncTelemetry(int capacity) {
+        mTraces = new SyncTrace[capacity];
+    }
+
+    public static SyncTelemetry getInstance() {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    sInstance = new SyncTelemetry(DEFAULT_CAPACITY);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Adds a finished trace, replacing the oldest one when the buffer is full.
+     */
+    public synchronized void record(SyncTrace trace) {
+        mTraces[mNext] = trace;
+        mNext = (mNext + 1) % mTraces.length;
+        mSize = Math.min(mSize + 1, mTraces.length);
+    }
+
+    /**
+     * Returns the buffered traces, the most recent first.
+     */
+    public synchronized List<SyncTrace> getTraces() {
+        List<SyncTrace> traces = new ArrayList<>(mSize);
+        for (int i = 1; i <= mSize; i++) {
+            traces.add(mTraces[(mNext - i + mTraces.length) % mTraces.length]);
+        }
+        return traces;
+    }
+
+    /**
+     * Summarizes the duration of a stage over the buffered traces.
+     */
+    public Summary getSummary(SyncTrace.Stage stage) {
+        List<SyncTrace> traces = getTraces();
+        long[] nanos = new long[traces.size()];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = traces.get(i).getStageNanos(stage);
+        }
+        Arrays.sort(nanos);
+        return new Summary(stage, nanos);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(mTraces, null);
+        mNext = 0;
+        mSize = 0;
+    }
+
+    /**
+     * Percentiles of the duration of one stage, in nanoseconds.
+     */
+    public static final class Summary {
+        private final SyncTrace.Stage mStage;
+        private final long[] mSortedNanos;
+
+        Summary(SyncTrace.Stage stage, long[] sortedNanos) {
+            mStage = stage;
+            mSortedNanos = sortedNanos;
+        }
+
+        public SyncTrace.Stage getStage() { return mStage; }
+
+        public int getCount() { return mSortedNanos.length; }
+
+        /**
+         * Returns the nearest-rank percentile, 0 if there are no traces.
+         * @param percentile Between 0 (exclusive) and 100
+         */
+        public long getPercentileNanos(int percentile) {
+            if (mSortedNanos.length == 0) return 0;
+            int rank = (int) Math.ceil(percentile / 100.0 * mSortedNanos.length);
+            return mSortedNanos[Math.max(0, rank - 1)];
+        }
+
+        public long getMaxNanos() {
+            return mSortedNanos.length == 0 ? 0 : mSortedNanos[mSortedNanos.length - 1];
+        }
+
+        private static long toMillis(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        @Override
+        public String toString() {
+            return mStage.name().toLowerCase(Locale.US)
+                    + ": p50 " + toMillis(getPercentileNanos(50))
+                    + " ms, p90 " + toMillis(getPercentileNanos(90))
+                    + " ms, p99 " + toMillis(getPercentileNanos(99))
+                    + " ms, max " + toMillis(getMaxNanos())
+                    + " ms (" + mSortedNanos.length + " syncs)";
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.android.sunshine.sync;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and sizes of the stages of one sync. Fetches of several locations run in parallel and
+ * add to the same trace, so network and parse stages are summed over the locations.
+ * <p>
+ * The body is parsed while it is downloaded; download time is the time spent blocked reading
+ * the network, and parse time the rest of the time spent consuming the body.
+ */
+public final class SyncTrace {
+
+    public enum Stage {
+        /* DNS lookup and connection set-up, close to zero on a kept-alive connection */
+        CONNECT,
+        /* From the request being sent to the status line arriving */
+        FIRST_BYTE,
+        DOWNLOAD,
+        PARSE,
+        WRITE,
+        NOTIFY,
+        /* The whole sync */
+        TOTAL
+    }
+
+    private final long mStartMillis;
+    private final long mStartNanos = System.nanoTime();
+    private final long[] mStageNanos = new long[Stage.values().length];
+
+    private SyncResult.Status mStatus;
+    private int mLocations;
+    private int mCacheHits;
+    private long mDownloadedBytes;
+    private int mEntriesParsed;
+    private int mRowsChanged;
+
+    SyncTrace(long startMillis) {
+        mStartMillis = startMillis;
+    }
+
+    synchronized void addFetch(long connectNanos, long firstByteNanos, long downloadNanos,
+                               long downloadedBytes, long parseNanos, int entries) {
+        mLocations++;
+        mStageNanos[Stage.CONNECT.ordinal()] += connectNanos;
+        mStageNanos[Stage.FIRST_BYTE.ordinal()] += firstByteNanos;
+        mStageNanos[Stage.DOWNLOAD.ordinal()] += downloadNanos;
+        mStageNanos[Stage.PARSE.ordinal()] += parseNanos;
+        mDownloadedBytes += downloadedBytes;
+        mEntriesParsed += entries;
+    }
+
+    /** A location whose forecast came from the response cache */
+    synchronized void addCachedParse(long parseNanos, int entries) {
+        mLocations++;
+        mCacheHits++;
+        mStageNanos[Stage.PARSE.ordinal()] += parseNanos;
+        mEntriesParsed += entries;
+    }
+
+    synchronized void setWrite(long writeNanos, int rowsChanged) {
+        mStageNanos[Stage.WRITE.ordinal()] = writeNanos;
+        mRowsChanged = rowsChanged;
+    }
+
+    synchronized void setNotify(long notifyNanos) {
+        mStageNanos[Stage.NOTIFY.ordinal()] = notifyNanos;
+    }
+
+    synchronized SyncTrace finish(SyncResult.Status status) {
+        mStatus = status;
+        mStageNanos[Stage.TOTAL.ordinal()] = System.nanoTime() - mStartNanos;
+        return this;
+    }
+
+    /** Wall clock time the sync started at */
+    public long getStartMillis() { return mStartMillis; }
+
+    public synchronized SyncResult.Status getStatus() { return mStatus; }
+
+    public synchronized long getStageNanos(Stage stage) { return mStageNanos[stage.ordinal()]; }
+
+    /** Number of locations that were fetched or read from the response cache */
+    public synchronized int getLocationCount() { return mLocations; }
+
+    public synchronized int getCacheHitCount() { return mCacheHits; }
+
+    /** Bytes received from the network, before decompression */
+    public synchronized long getDownloadedBytes() { return mDownloadedBytes; }
+
+    public synchronized int getEntriesParsed() { return mEntriesParsed; }
+
+    /** Rows inserted, updated or deleted by the write */
+    public synchronized int getRowsChanged() { return mRowsChanged; }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("SyncTrace ").append(mStatus);
+        for (Stage stage : Stage.values()) {
+            builder.append(", ").append(stage.name().toLowerCase(Locale.US))
+                    .append(' ').append(TimeUnit.NANOSECONDS.toMillis(mStageNanos[stage.ordinal()]))
+                    .append(" ms");
+        }
+        return builder.append(", locations ").append(mLocations)
+                .append(" (cached ").append(mCacheHits).append(')')
+                .append(", bytes ").append(mDownloadedBytes)
+                .append(", entries ").append(mEntriesParsed)
+                .append(", rows changed ").append(mRowsChanged)
+                .toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.android.sunshine.utilities;
+
+import android.os.SystemClock;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets one thread ask work running on other threads to stop, either explicitly through
+ * {@link #cancel()} or because a deadline has passed.
+ * <p>
+ * Long running work checks {@link #throwIfCanceled()} between its stages. Work that blocks, like
+ * an HTTP read, registers a {@link #onCancel(Runnable) listener} that unblocks it, e.g. by closing
+ * the connection. A deadline does not fire the listeners; blocking work bounds its own timeouts
+ * by {@link #getRemainingMillis()} instead.
+ */
+public final class CancellationToken {
+
+    private final long mDeadline;
+    private volatile boolean mCanceled;
+
+    /* Guarded by this, null once canceled */
+    private List<Runnable> mListeners = new ArrayList<>();
+
+    private CancellationToken(long deadline) {
+        mDeadline = deadline;
+    }
+
+    /**
+     * Returns a token that is only canceled by {@link #cancel()}.
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a token that also counts as canceled once the given time has passed.
+     */
+    public static CancellationToken withTimeout(long timeoutMillis) {
+        return new CancellationToken(SystemClock.elapsedRealtime() + timeoutMillis);
+    }
+
+    /**
+     * Cancels the token and runs every registered listener on a background thread. Listeners
+     * close sockets, which is network I/O and not allowed on the main thread that usually cancels.
+     */
+    public void cancel() {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mCanceled) return;
+            mCanceled = true;
+            listeners = mListeners;
+            mListeners = null;
+        }
+        if (listeners.isEmpty()) return;
+        new Thread(() -> {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }, "sunshine-cancel").start();
+    }
+
+    /**
+     * Returns true if {@link #cancel()} was called or the deadline has passed.
+     */
+    public boolean isCanceled() {
+        return mCanceled || SystemClock.elapsedRealtime() >= mDeadline;
+    }
+
+    /**
+     * @throws CanceledException If the token was canceled or the deadline has passed
+     */
+    public void throwIfCanceled() throws CanceledException {
+        if (mCanceled) throw new CanceledException("Canceled");
+        if (SystemClock.elapsedRealtime() >= mDeadline) throw new CanceledException("Deadline passed");
+    }
+
+    /**
+     * Returns the time left until the deadline, Long.MAX_VALUE if there is none.
+     */
+    public long getRemainingMillis() {
+        if (mDeadline == Long.MAX_VALUE) return Long.MAX_VALUE;
+        return Math.max(0, mDeadline - SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Runs the listener when the token is canceled, or right away if it already is.
+     *
+     * @return Removes the listener once the work it unblocks has finished
+     */
+    public Registration onCancel(Runnable listener) {
+        synchronized (this) {
+            if (!mCanceled) {
+                mListeners.add(listener);
+                return () -> {
+                    synchronized (CancellationToken.this) {
+                        if (mListeners != null) mListeners.remove(listener);
+                    }
+                };
+            }
+        }
+        listener.run();
+        return () -> { };
+    }
+
+    /**
+     * A listener registered with {@link #onCancel(Runnable)}.
+     */
+    public interface Registration {
+        void unregister();
+    }
+
+    /**
+     * Thrown by work that stopped because its token was canceled. It is an
+     * {@link InterruptedIOException} so it travels through I/O code like an interrupted read.
+     */
+    public static final class CanceledException extends InterruptedIOException {
+        CanceledException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.v4.util.LongSparseArray;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Memoizes the friendly date labels of {@link SunshineDateUtils}. A label depends on the day, the
+ * full/short mode, the current day, the locale and the time zone; the labels are cached per day
+ * and mode, and all of them are dropped when any of the others changes. Once a list's labels are
+ * cached, looking them up again allocates nothing.
+ * <p>
+ * The current day rolls over at local midnight on the first lookup after it. Time zone and locale
+ * changes are picked up from their broadcasts.
+ */
+public final class DateLabelCache {
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    private static volatile DateLabelCache sInstance;
+
+    private final Context mContext;
+    /* Labels by UTC day number */
+    private final LongSparseArray<String> mShortLabels = new LongSparseArray<>();
+    private final LongSparseArray<String> mFullLabels = new LongSparseArray<>();
+
+    /* What the cached labels were made for */
+    private Locale mLocale;
+    private long mCurrentDayNumber;
+    /* Local midnight that ends mCurrentDayNumber, in UTC millis */
+    private long mNextMidnight;
+
+    private int mHits;
+    private int mMisses;
+
+    DateLabelCache(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    public static DateLabelCache getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    DateLabelCache cache = new DateLabelCache(context);
+                    cache.registerReceiver();
+                    sInstance = cache;
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private void registerReceiver() {
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        mContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+
+    /**
+     * Returns the label of a day, see
+     * {@link SunshineDateUtils#getFriendlyDateString(Context, long, boolean)}.
+     *
+     * @param dateInMillis The normalized date in milliseconds (UTC)
+     * @param showFullDate True for the long form
+     */
+    public synchronized String getLabel(long dateInMillis, boolean showFullDate) {
+        long now = System.currentTimeMillis();
+        if (now >= mNextMidnight || !Locale.getDefault().equals(mLocale)) {
+            reset(now);
+        }
+
+        LongSparseArray<String> labels = showFullDate ? mFullLabels : mShortLabels;
+        long key = dateInMillis / SunshineDateUtils.DAY_IN_MILLIS;
+        String label = labels.get(key);
+        if (label == null) {
+            mMisses++;
+            label = SunshineDateUtils.formatFriendlyDateString(mContext, dateInMillis,
+                    showFullDate, mCurrentDayNumber);
+            labels.put(key, label);
+        } else {
+            mHits++;
+        }
+        return label;
+    }
+
+    /**
+     * Drops every label, they are made again on the next lookup.
+     */
+    public synchronized void invalidate() {
+        mNextMidnight = Long.MIN_VALUE;
+    }
+
+    private void reset(long now) {
+        mShortLabels.clear();
+        mFullLabels.clear();
+        mLocale = Locale.getDefault();
+
+        TimeZone tz = TimeZone.getDefault();
+        long offset = tz.getOffset(now);
+        mCurrentDayNumber = (now + offset) / SunshineDateUtils.DAY_IN_MILLIS;
+        /* The offset may differ at midnight after a DST change, so use the one there */
+        long midnight = (mCurrentDayNumber + 1) * SunshineDateUtils.DAY_IN_MILLIS;
+        mNextMidnight = midnight - tz.getOffset(midnight - offset);
+    }
+
+    public synchronized int getHitCount() { return mHits; }
+
+    public synchronized int getMissCount() { return mMisses; }
+
+    @Override
+    public synchronized String toString() {
+        return "DateLabelCache hits " + mHits
+                + ", misses " + mMisses
+                + ", size " + (mShortLabels.size() + mFullLabels.size());
+    }
+}
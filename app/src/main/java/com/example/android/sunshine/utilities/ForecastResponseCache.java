@@ -0,0 +1,550 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.Context;
+import android.net.Uri;
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent cache of forecast responses, consulted before any forecast request goes to the
+ * network.
+ * <p>
+ * Entries are keyed by the normalized request URL (location, units, days, ...), expire after a
+ * fixed time to live and are evicted in least-recently-used order once the files on disk go over
+ * the byte budget. The recency order is kept in an index file next to the entries, because file
+ * modification times cannot be set reliably on Android. Each entry also keeps the ETag and Last-Modified validators of the response,
+ * so a cached forecast can still be revalidated later.
+ * <p>
+ * Bodies are streamed in both directions: a hit hands out a Reader over the file, and a response
+ * coming from the network is copied into an {@link Editor} while it is being parsed, so the body
+ * is never held in memory as a single String.
+ */
+public final class ForecastResponseCache {
+
+    private static final String TAG = ForecastResponseCache.class.getSimpleName();
+
+    private static final String CACHE_DIRECTORY = "forecast-responses";
+    private static final long DEFAULT_MAX_BYTES = 512 * 1024;
+    private static final long DEFAULT_TTL_MILLIS = DateUtils.HOUR_IN_MILLIS;
+
+    /* Query parameters that do not change the response and must not split the cache */
+    private static final List<String> IGNORED_PARAMS = Arrays.asList("appid");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String TEMP_SUFFIX = ".tmp";
+    /* Lists the entry file names, least recently used first */
+    private static final String INDEX_FILE = "index";
+    private static final int BUFFER_SIZE = 8192;
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    private static volatile ForecastResponseCache sInstance;
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final long mTtlMillis;
+    private final Clock mClock;
+
+    /* File name -> entry, in access order so the eldest entry is the least recently used */
+    private final LinkedHashMap<String, IndexEntry> mIndex = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean mIndexLoaded;
+    private long mSize;
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mEvictions = new AtomicLong();
+
+    /**
+     * Source of the current time, replaced in tests.
+     */
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public ForecastResponseCache(File directory, long maxBytes, long ttlMillis) {
+        this(directory, maxBytes, ttlMillis, System::currentTimeMillis);
+    }
+
+    public ForecastResponseCache(File directory, long maxBytes, long ttlMillis, Clock clock) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mTtlMillis = ttlMillis;
+        mClock = clock;
+    }
+
+    public static ForecastResponseCache getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    File directory = new File(context.getApplicationContext().getCacheDir(),
+                            CACHE_DIRECTORY);
+                    sInstance = new ForecastResponseCache(directory, DEFAULT_MAX_BYTES,
+                            DEFAULT_TTL_MILLIS);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Builds the cache key for a request URL. The key contains the host, the path and the
+     * relevant query parameters in sorted order, with the location trimmed and lower-cased, so
+     * the same forecast request always maps to the same entry.
+     *
+     * @param url The forecast request URL
+     * @return Normalized cache key
+     */
+    public static String keyFor(URL url) {
+        Uri uri = Uri.parse(url.toString());
+        List<String> names = new ArrayList<>(uri.getQueryParameterNames());
+        Collections.sort(names);
+
+        StringBuilder key = new StringBuilder()
+                .append(uri.getHost())
+                .append(uri.getPath());
+        char separator = '?';
+        for (String name : names) {
+            if (IGNORED_PARAMS.contains(name)) continue;
+            String value = uri.getQueryParameter(name);
+            key.append(separator)
+                    .append(name)
+                    .append('=')
+                    .append(value == null ? "" : value.trim().toLowerCase(Locale.US));
+            separator = '&';
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached response for a key, or null on a miss. Expired entries are removed.
+     * The returned response holds the entry's file open and must be closed by the caller.
+     *
+     * @param key Key made by {@link #keyFor(URL)}
+     * @return The cached response or null
+     */
+    public synchronized CachedResponse get(String key) {
+        loadIndexIfNeeded();
+        String fileName = fileNameFor(key);
+        IndexEntry indexEntry = mIndex.get(fileName);
+        if (indexEntry == null) {
+            mMisses.incrementAndGet();
+            return null;
+        }
+
+        if (indexEntry.expiresAt <= mClock.currentTimeMillis()) {
+            remove(fileName);
+            writeIndex();
+            mMisses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            CachedResponse response = open(new File(mDirectory, fileName));
+            /* The lookup moved the entry to the end, persist it so LRU order survives a restart */
+            writeIndex();
+            mHits.incrementAndGet();
+            return response;
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache entry " + fileName, e);
+            remove(fileName);
+            writeIndex();
+            mMisses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Starts writing a response under a key. The body is written to a temporary file and only
+     * replaces the current entry when {@link Editor#commit()} is called, so readers never see a
+     * partial body.
+     *
+     * @param key          Key made by {@link #keyFor(URL)}
+     * @param eTag         ETag response header, may be null
+     * @param lastModified Last-Modified response header, may be null
+     * @return An editor for the entry, or null if the cache cannot be written
+     */
+    public Editor edit(String key, String eTag, String lastModified) {
+        String fileName = fileNameFor(key);
+        synchronized (this) {
+            /* Loading the index deletes stray temp files, so do it before creating ours */
+            loadIndexIfNeeded();
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                Log.w(TAG, "Could not create " + mDirectory);
+                return null;
+            }
+        }
+
+        long expiresAt = mClock.currentTimeMillis() + mTtlMillis;
+        DataOutputStream out = null;
+        File temp = null;
+        try {
+            /* Unique per editor, so concurrent writers of one key do not share a file */
+            temp = File.createTempFile(fileName, TEMP_SUFFIX, mDirectory);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp),
+                    BUFFER_SIZE));
+            out.writeLong(expiresAt);
+            out.writeUTF(eTag == null ? "" : eTag);
+            out.writeUTF(lastModified == null ? "" : lastModified);
+            return new Editor(fileName, temp, expiresAt, new OutputStreamWriter(out, UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not start cache entry", e);
+            closeQuietly(out);
+            if (temp != null) temp.delete();
+            return null;
+        }
+    }
+
+    private synchronized void commit(String fileName, File temp, long expiresAt) {
+        File file = new File(mDirectory, fileName);
+        remove(fileName);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+
+        IndexEntry indexEntry = new IndexEntry(file.length(), expiresAt);
+        mIndex.put(fileName, indexEntry);
+        mSize += indexEntry.size;
+        trimToSize();
+        writeIndex();
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear() {
+        loadIndexIfNeeded();
+        for (String fileName : new ArrayList<>(mIndex.keySet())) {
+            remove(fileName);
+        }
+        writeIndex();
+    }
+
+    public long getHitCount() { return mHits.get(); }
+
+    public long getMissCount() { return mMisses.get(); }
+
+    public long getEvictionCount() { return mEvictions.get(); }
+
+    public synchronized long getSize() {
+        loadIndexIfNeeded();
+        return mSize;
+    }
+
+    public long getMaxSize() { return mMaxBytes; }
+
+    @Override
+    public String toString() {
+        return "ForecastResponseCache hits " + getHitCount()
+                + ", misses " + getMissCount()
+                + ", evictions " + getEvictionCount()
+                + ", size " + getSize() + "/" + mMaxBytes;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, IndexEntry>> iterator = mIndex.entrySet().iterator();
+        while (mSize > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, IndexEntry> eldest = iterator.next();
+            iterator.remove();
+            mSize -= eldest.getValue().size;
+            new File(mDirectory, eldest.getKey()).delete();
+            mEvictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String fileName) {
+        IndexEntry removed = mIndex.remove(fileName);
+        if (removed != null) {
+            mSize -= removed.size;
+        }
+        new File(mDirectory, fileName).delete();
+    }
+
+    /**
+     * Rebuilds the index from the files on disk, in the order the index file recorded. Entries
+     * missing from the index file are treated as the least recently used, oldest first.
+     */
+    private void loadIndexIfNeeded() {
+        if (mIndexLoaded) return;
+        mIndexLoaded = true;
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) return;
+
+        final Map<String, Integer> ranks = readIndex();
+        final Map<String, IndexEntry> found = new HashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.equals(INDEX_FILE)) continue;
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            try {
+                DataInputStream in = new DataInputStream(new FileInputStream(file));
+                try {
+                    found.put(name, new IndexEntry(file.length(), in.readLong()));
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                file.delete();
+            }
+        }
+
+        List<String> names = new ArrayList<>(found.keySet());
+        Collections.sort(names, (a, b) -> {
+            Integer rankA = ranks.get(a);
+            Integer rankB = ranks.get(b);
+            if (rankA != null && rankB != null) return rankA.compareTo(rankB);
+            if (rankA != null) return 1;
+            if (rankB != null) return -1;
+            long diff = found.get(a).expiresAt - found.get(b).expiresAt;
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        });
+        for (String name : names) {
+            IndexEntry indexEntry = found.get(name);
+            mIndex.put(name, indexEntry);
+            mSize += indexEntry.size;
+        }
+        trimToSize();
+    }
+
+    /**
+     * Reads the index file into file name -> position, empty if there is none.
+     */
+    private Map<String, Integer> readIndex() {
+        Map<String, Integer> ranks = new HashMap<>();
+        File file = new File(mDirectory, INDEX_FILE);
+        if (!file.exists()) return ranks;
+        try {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), UTF_8));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    ranks.put(line, ranks.size());
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read the cache index", e);
+        }
+        return ranks;
+    }
+
+    /**
+     * Writes the current LRU order to the index file. It is replaced in one rename, so a crash
+     * leaves either the old or the new order.
+     */
+    private void writeIndex() {
+        if (!mDirectory.isDirectory()) return;
+        File temp = new File(mDirectory, INDEX_FILE + TEMP_SUFFIX);
+        Writer out = null;
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), UTF_8));
+            for (String fileName : mIndex.keySet()) {
+                out.write(fileName);
+                out.write('\n');
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(new File(mDirectory, INDEX_FILE))) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write the cache index", e);
+            closeQuietly(out);
+            temp.delete();
+        }
+    }
+
+    /**
+     * Opens an entry and reads its header, leaving the stream positioned at the body.
+     */
+    private static CachedResponse open(File file) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try {
+            in.readLong();
+            String eTag = in.readUTF();
+            String lastModified = in.readUTF();
+            return new CachedResponse(new InputStreamReader(in, UTF_8),
+                    eTag.isEmpty() ? null : eTag,
+                    lastModified.isEmpty() ? null : lastModified);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do
+        }
+    }
+
+    private static String fileNameFor(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class IndexEntry {
+        final long size;
+        final long expiresAt;
+
+        IndexEntry(long size, long expiresAt) {
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A response read back from the cache. The body is streamed from the entry's file, which
+     * stays readable until this is closed even if the entry is evicted in the meantime.
+     */
+    public static final class CachedResponse implements Closeable {
+        private final Reader mBody;
+        private final String mETag;
+        private final String mLastModified;
+
+        CachedResponse(Reader body, String eTag, String lastModified) {
+            mBody = body;
+            mETag = eTag;
+            mLastModified = lastModified;
+        }
+
+        public Reader getBody() { return mBody; }
+
+        public String getETag() { return mETag; }
+
+        public String getLastModified() { return mLastModified; }
+
+        @Override
+        public void close() throws IOException {
+            mBody.close();
+        }
+    }
+
+    /**
+     * Writes one entry. Either {@link #commit()} or {@link #abort()} must be called.
+     */
+    public final class Editor {
+        private final String mFileName;
+        private final File mTemp;
+        private final long mExpiresAt;
+        private final Writer mWriter;
+        private Reader mSource;
+
+        Editor(String fileName, File temp, long expiresAt, Writer writer) {
+            mFileName = fileName;
+            mTemp = temp;
+            mExpiresAt = expiresAt;
+            mWriter = new BufferedWriter(writer, BUFFER_SIZE);
+        }
+
+        /**
+         * Returns a Reader over the source that copies every character read from it into the
+         * entry. Whatever the consumer leaves unread is copied by {@link #commit()}.
+         */
+        public Reader copyOf(Reader source) {
+            mSource = source;
+            return new FilterReader(source) {
+                @Override
+                public int read() throws IOException {
+                    int c = super.read();
+                    if (c != -1) mWriter.write(c);
+                    return c;
+                }
+
+                @Override
+                public int read(char[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) mWriter.write(buffer, offset, read);
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    /* Skipped characters still belong in the entry */
+                    char[] buffer = new char[(int) Math.min(n, BUFFER_SIZE)];
+                    int read = read(buffer, 0, buffer.length);
+                    return read == -1 ? 0 : read;
+                }
+            };
+        }
+
+        /**
+         * Finishes the body and makes it the entry for the key.
+         */
+        public void commit() throws IOException {
+            try {
+                if (mSource != null) {
+                    char[] buffer = new char[BUFFER_SIZE];
+                    int read;
+                    while ((read = mSource.read(buffer)) != -1) {
+                        mWriter.write(buffer, 0, read);
+                    }
+                }
+                mWriter.close();
+            } catch (IOException e) {
+                abort();
+                throw e;
+            }
+            ForecastResponseCache.this.commit(mFileName, mTemp, mExpiresAt);
+        }
+
+        /**
+         * Drops the entry being written, keeping the current one.
+         */
+        public void abort() {
+            closeQuietly(mWriter);
+            mTemp.delete();
+        }
+    }
+}
@@ -6,7 +6,6 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.TaskStackBuilder;
-import android.arch.lifecycle.LiveData;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
@@ -15,11 +14,11 @@ import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.content.ContextCompat;
+import android.util.LruCache;
 
 import com.example.android.sunshine.DetailActivity;
 import com.example.android.sunshine.R;
 import com.example.android.sunshine.data.SunshinePreferences;
-import com.example.android.sunshine.data.database.AppDatabase;
 import com.example.android.sunshine.data.database.WeatherEntry;
 
 public class NotificationUtils {
@@ -27,95 +26,125 @@ public class NotificationUtils {
     private static final String FORECAST_NOTIFICATION_CHANNEL_ID = "forecast-noti-channel";
     private static final int FORECAST_NOTIFICATION_ID = 454;
 
+    /* A few conditions at the current density */
+    private static final int MAX_LARGE_ICONS = 8;
+
+    /*
+     * Large icons decoded and scaled to the notification size, keyed by art resource id in the
+     * high half and screen density in the low half
+     */
+    private static final LruCache<Long, Bitmap> sLargeIcons = new LruCache<>(MAX_LARGE_ICONS);
+
+    /* The channel only has to be created once per process */
+    private static final Object CHANNEL_LOCK = new Object();
+    private static volatile boolean sChannelCreated;
+
     /**
      * Constructs and displays a notification for the newly updated weather for today.
      *
-     * @param context Context used to query our ContentProvider and use various Utility methods
+     * @param context      Context used to access resources and various Utility methods
+     * @param todayWeather Today's entry, as parsed by the sync that just finished
      */
-    public static void notifyUserOfNewWeather(final Context context) {
+    public static void notifyUserOfNewWeather(final Context context, WeatherEntry todayWeather) {
+
+        /* Weather ID as returned by API, used to identify the icon to be used */
+        int weatherId = todayWeather.getWeatherId();
+        double high = todayWeather.getMax();
+        double low = todayWeather.getMin();
+
+        int largeArtResourceId = SunshineWeatherUtils
+                .getLargeArtResourceIdForWeatherCondition(weatherId);
+        Bitmap largeIcon = getLargeIcon(context.getResources(), largeArtResourceId);
+
+        String notificationTitle = context.getString(R.string.app_name);
+
+        final String notificationText = getNotificationText(context, weatherId, high, low);
+
+        /* getSmallArtResourceIdForWeatherCondition returns the proper art to show given an ID */
+        int smallArtResourceId = SunshineWeatherUtils
+                .getSmallArtResourceIdForWeatherCondition(weatherId);
+
+        /* Use NotificationCompat.Builder to begin building the notification */
+        NotificationCompat.Builder notiBuilder = new NotificationCompat.Builder(
+                context, FORECAST_NOTIFICATION_CHANNEL_ID);
+        notiBuilder.setColor(ContextCompat.getColor(context, R.color.colorPrimary))
+                .setSmallIcon(smallArtResourceId)
+                .setLargeIcon(largeIcon)
+                .setContentTitle(notificationTitle)
+                .setContentText(notificationText)
+                .setDefaults(Notification.DEFAULT_VIBRATE)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(notificationText))
+                .setAutoCancel(true);
+
+        /* Create an Intent with the weather entry date to start the DetailActivity */
+        Intent detailIntentForToday = new Intent(context, DetailActivity.class);
+        detailIntentForToday.putExtra(DetailActivity.INTENT_DATE_KEY, todayWeather.getDate());
+
+        /* Use TaskStackBuilder to create the proper PendingIntent */
+        TaskStackBuilder taskStackBuilder;
+        PendingIntent resultPendingIntent;
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN) {
+            taskStackBuilder = TaskStackBuilder.create(context);
+            taskStackBuilder.addNextIntentWithParentStack(detailIntentForToday);
+            resultPendingIntent = taskStackBuilder.getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT);
+            // Set the content Intent of the NotificationBuilder
+            notiBuilder.setContentIntent(resultPendingIntent);
+        }
 
-        long today = SunshineDateUtils.normalizeDate(System.currentTimeMillis());
-        LiveData<WeatherEntry> todayLiveData = AppDatabase.getsInstance(context).weatherDao().getWeatherByDate(today);
-        WeatherEntry todayWeather = todayLiveData.getValue();
-        /*
-         * If our cursor is not null, we want to show the notification.
+        /* Get reference to NotificationManager */
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(context.NOTIFICATION_SERVICE);
+
+        /* Create a notification channel for Android O devices */
+        createNotificationChannel(context, notificationManager);
+
+        /* If the build version is greater than JELLY_BEAN and lower than OREO,
+         * set the notification's priority to PRIORITY_HIGH.
          */
-        if (todayWeather != null) {
-
-            /* Weather ID as returned by API, used to identify the icon to be used */
-            int weatherId = todayWeather.getWeatherId();
-            double high = todayWeather.getMax();
-            double low = todayWeather.getMin();
-
-            Resources resources = context.getResources();
-            int largeArtResourceId = SunshineWeatherUtils
-                    .getLargeArtResourceIdForWeatherCondition(weatherId);
-
-            Bitmap largeIcon = BitmapFactory.decodeResource(
-                    resources,
-                    largeArtResourceId);
-
-            String notificationTitle = context.getString(R.string.app_name);
-
-            final String notificationText = getNotificationText(context, weatherId, high, low);
-
-            /* getSmallArtResourceIdForWeatherCondition returns the proper art to show given an ID */
-            int smallArtResourceId = SunshineWeatherUtils
-                    .getSmallArtResourceIdForWeatherCondition(weatherId);
-
-            /* Use NotificationCompat.Builder to begin building the notification */
-            NotificationCompat.Builder notiBuilder = new NotificationCompat.Builder(
-                    context, FORECAST_NOTIFICATION_CHANNEL_ID);
-            notiBuilder.setColor(ContextCompat.getColor(context, R.color.colorPrimary))
-                    .setSmallIcon(smallArtResourceId)
-                    .setLargeIcon(largeIcon)
-                    .setContentTitle(notificationTitle)
-                    .setContentText(notificationText)
-                    .setDefaults(Notification.DEFAULT_VIBRATE)
-                    .setStyle(new NotificationCompat.BigTextStyle().bigText(notificationText))
-                    .setAutoCancel(true);
-
-            /* Create an Intent with the weather entry id to start the DetailActivity */
-            Intent detailIntentForToday = new Intent(context, DetailActivity.class);
-            detailIntentForToday.putExtra(DetailActivity.INTENT_DATE_KEY, todayWeather.getDate());
-
-            /* Use TaskStackBuilder to create the proper PendingIntent */
-            TaskStackBuilder taskStackBuilder;
-            PendingIntent resultPendingIntent;
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN) {
-                taskStackBuilder = TaskStackBuilder.create(context);
-                taskStackBuilder.addNextIntentWithParentStack(detailIntentForToday);
-                resultPendingIntent = taskStackBuilder.getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT);
-                // Set the content Intent of the NotificationBuilder
-                notiBuilder.setContentIntent(resultPendingIntent);
-            }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN &&
+                Build.VERSION.SDK_INT < Build.VERSION_CODES.O){
+            notiBuilder.setPriority(NotificationCompat.PRIORITY_HIGH);
+        }
+
+        // Notify the user with the ID WEATHER_NOTIFICATION_ID
+        notificationManager.notify(FORECAST_NOTIFICATION_ID, notiBuilder.build());
 
-            /* Get reference to NotificationManager */
-            NotificationManager notificationManager =
-                    (NotificationManager) context.getSystemService(context.NOTIFICATION_SERVICE);
+        // Save the time at which the notification occurred using SunshinePreferences
+        SunshinePreferences.saveLastNotificationTime(context, System.currentTimeMillis());
+    }
 
-            /* Create a notification channel for Android O devices */
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+    /**
+     * Returns the art of a condition at the size of a notification's large icon. The art is
+     * decoded and scaled the first time it is shown at the current density.
+     */
+    static Bitmap getLargeIcon(Resources resources, int artResourceId) {
+        long key = ((long) artResourceId << 32) | resources.getDisplayMetrics().densityDpi;
+        Bitmap icon = sLargeIcons.get(key);
+        if (icon == null) {
+            Bitmap art = BitmapFactory.decodeResource(resources, artResourceId);
+            int width = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+            int height = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+            icon = Bitmap.createScaledBitmap(art, width, height, true);
+            if (icon != art) {
+                art.recycle();
+            }
+            sLargeIcons.put(key, icon);
+        }
+        return icon;
+    }
+
+    private static void createNotificationChannel(Context context,
+                                                  NotificationManager notificationManager) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || sChannelCreated) return;
+        synchronized (CHANNEL_LOCK) {
+            if (!sChannelCreated) {
                 NotificationChannel notificationChannel = new NotificationChannel(
                         FORECAST_NOTIFICATION_CHANNEL_ID,
                         context.getString(R.string.main_notification_channel_name),
                         NotificationManager.IMPORTANCE_HIGH);
                 notificationManager.createNotificationChannel(notificationChannel);
+                sChannelCreated = true;
             }
-
-            /* If the build version is greater than JELLY_BEAN and lower than OREO,
-             * set the notification's priority to PRIORITY_HIGH.
-             */
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN &&
-                    Build.VERSION.SDK_INT < Build.VERSION_CODES.O){
-                notiBuilder.setPriority(NotificationCompat.PRIORITY_HIGH);
-            }
-
-            // Notify the user with the ID WEATHER_NOTIFICATION_ID
-            notificationManager.notify(FORECAST_NOTIFICATION_ID, notiBuilder.build());
-
-            // Save the time at which the notification occurred using SunshinePreferences
-            SunshinePreferences.saveLastNotificationTime(context, System.currentTimeMillis());
         }
     }
 
@@ -146,10 +175,11 @@ public class NotificationUtils {
         String notificationFormat = context.getString(R.string.format_notification);
 
         /* Using String's format method, we create the forecast summary */
+        WeatherFormatter formatter = WeatherFormatter.getInstance(context);
         String notificationText = String.format(notificationFormat,
                 shortDescription,
-                SunshineWeatherUtils.formatTemperature(context, high),
-                SunshineWeatherUtils.formatTemperature(context, low));
+                formatter.formatTemperature(high),
+                formatter.formatTemperature(low));
 
         return notificationText;
     }
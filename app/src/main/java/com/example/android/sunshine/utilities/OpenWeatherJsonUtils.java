@@ -17,6 +17,8 @@ package com.example.android.sunshine.utilities;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.util.JsonReader;
+import android.util.MalformedJsonException;
 
 import com.example.android.sunshine.data.database.WeatherEntry;
 
@@ -24,6 +26,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.List;
@@ -106,9 +110,7 @@ public final class OpenWeatherJsonUtils {
 
         parsedWeatherData = new String[weatherArray.length()];
 
-        long localDate = System.currentTimeMillis();
-        long utcDate = SunshineDateUtils.getUTCDateFromLocal(localDate);
-        long startDay = SunshineDateUtils.normalizeDate(utcDate);
+        long startDay = SunshineDateUtils.getNormalizedUtcDateForToday();
 
         for (int i = 0; i < weatherArray.length(); i++) {
             String date;
@@ -202,9 +204,7 @@ public final class OpenWeatherJsonUtils {
         // Initiliaze the array
         parsedWeatherData = new WeatherEntry[weatherArray.length()];
 
-        long localDate = System.currentTimeMillis();
-        long utcDate = SunshineDateUtils.getUTCDateFromLocal(localDate);
-        long startDay = SunshineDateUtils.normalizeDate(utcDate);
+        long startDay = SunshineDateUtils.getNormalizedUtcDateForToday();
 
         for (int i = 0; i < weatherArray.length(); i++) {
             //String date;
@@ -267,4 +267,163 @@ public final class OpenWeatherJsonUtils {
         return parsedWeatherData;
     }
 
-}
\ No newline at end of file
+    /* Bits set while reading one day in the streaming parser, all must be present */
+    private static final int FIELD_PRESSURE = 1;
+    private static final int FIELD_HUMIDITY = 1 << 1;
+    private static final int FIELD_WIND_SPEED = 1 << 2;
+    private static final int FIELD_WIND_DIRECTION = 1 << 3;
+    private static final int FIELD_WEATHER = 1 << 4;
+    private static final int FIELD_MAX = 1 << 5;
+    private static final int FIELD_MIN = 1 << 6;
+    private static final int ALL_FIELDS = (1 << 7) - 1;
+
+    /**
+     * Streaming counterpart of {@link #getFullWeatherStringsFromJson(Context, String)}. The JSON
+     * is pulled token by token and every day is turned into a {@link WeatherEntry} as soon as it
+     * has been read, so no JSONObject/JSONArray tree is built. Unknown fields are skipped without
+     * being materialized, and a "cod" error code makes the parser stop right away.
+     * <p>
+     * The result is identical to the DOM parser for the same payload.
+     *
+     * @param forecastJson Reader over the JSON response from the server. It is not closed.
+     *
+     * @return Array of parsed weather entries, or null if the server reported an error
+     *
+     * @throws IOException If the JSON is malformed or a day is missing a field
+     */
+    public static WeatherEntry[] getWeatherEntriesFromJson(Reader forecastJson) throws IOException {
+        long startDay = SunshineDateUtils.getNormalizedUtcDateForToday();
+
+        JsonReader reader = new JsonReader(forecastJson);
+        List<WeatherEntry> parsedWeatherData = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_MESSAGE_CODE.equals(name)) {
+                /* Is there an error? Then there is no point in reading any further */
+                if ((int) reader.nextDouble() != HttpURLConnection.HTTP_OK) {
+                    return null;
+                }
+            } else if (OWM_LIST.equals(name)) {
+                parsedWeatherData = readWeatherList(reader, startDay);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (parsedWeatherData == null) {
+            throw new MalformedJsonException("Forecast has no \"" + OWM_LIST + "\" array");
+        }
+        return parsedWeatherData.toArray(new WeatherEntry[parsedWeatherData.size()]);
+    }
+
+    private static List<WeatherEntry> readWeatherList(JsonReader reader, long startDay)
+            throws IOException {
+        List<WeatherEntry> entries = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            /*
+             * Same as the DOM parser, we ignore the datetime values embedded in the JSON and
+             * assume that the values are returned in-order by day.
+             */
+            long dateTimeMillis = startDay + SunshineDateUtils.DAY_IN_MILLIS * entries.size();
+            entries.add(readWeatherDay(reader, dateTimeMillis));
+        }
+        reader.endArray();
+
+        return entries;
+    }
+
+    private static WeatherEntry readWeatherDay(JsonReader reader, long dateTimeMillis)
+            throws IOException {
+        double high = 0;
+        double low = 0;
+        String description = null;
+        double pressure = 0;
+        int humidity = 0;
+        double windSpeed = 0;
+        double windDirection = 0;
+        int weatherId = 0;
+        int fields = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case OWM_PRESSURE:
+                    pressure = reader.nextDouble();
+                    fields |= FIELD_PRESSURE;
+                    break;
+                case OWM_HUMIDITY:
+                    /* JSONObject.getInt truncates, so do we */
+                    humidity = (int) reader.nextDouble();
+                    fields |= FIELD_HUMIDITY;
+                    break;
+                case OWM_WINDSPEED:
+                    windSpeed = reader.nextDouble();
+                    fields |= FIELD_WIND_SPEED;
+                    break;
+                case OWM_WIND_DIRECTION:
+                    windDirection = reader.nextDouble();
+                    fields |= FIELD_WIND_DIRECTION;
+                    break;
+                case OWM_TEMPERATURE:
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if (OWM_MAX.equals(name)) {
+                            high = reader.nextDouble();
+                            fields |= FIELD_MAX;
+                        } else if (OWM_MIN.equals(name)) {
+                            low = reader.nextDouble();
+                            fields |= FIELD_MIN;
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case OWM_WEATHER:
+                    /* Only the first element of the "weather" array is used */
+                    reader.beginArray();
+                    if (reader.hasNext()) {
+                        int weatherFields = 0;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String name = reader.nextName();
+                            if (OWM_WEATHER_ID.equals(name)) {
+                                weatherId = (int) reader.nextDouble();
+                                weatherFields |= 1;
+                            } else if (OWM_DESCRIPTION.equals(name)) {
+                                description = reader.nextString();
+                                weatherFields |= 2;
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        if (weatherFields == 3) fields |= FIELD_WEATHER;
+                    }
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (fields != ALL_FIELDS) {
+            throw new MalformedJsonException("Forecast day is missing fields: " + fields);
+        }
+
+        return new WeatherEntry(dateTimeMillis, weatherId, description, low,
+                high, humidity, pressure, windSpeed, windDirection);
+    }
+
+}
@@ -21,6 +21,7 @@ import android.text.format.DateUtils;
 import com.example.android.sunshine.R;
 
 import java.text.SimpleDateFormat;
+import java.util.Locale;
 import java.util.TimeZone;
 
 /**
@@ -42,8 +43,7 @@ public final class SunshineDateUtils {
      * @return The number of days in UTC time from the epoch.
      */
     public static long getDayNumber(long date) {
-        TimeZone tz = TimeZone.getDefault();
-        long gmtOffset = tz.getOffset(date);
+        long gmtOffset = TimeZoneOffsetCache.getInstance().getOffset(date);
         return (date + gmtOffset) / DAY_IN_MILLIS;
     }
 
@@ -70,8 +70,7 @@ public final class SunshineDateUtils {
      * @return The local date (the UTC datetime - the TimeZone offset) in milliseconds.
      */
     public static long getLocalDateFromUTC(long utcDate) {
-        TimeZone tz = TimeZone.getDefault();
-        long gmtOffset = tz.getOffset(utcDate);
+        long gmtOffset = TimeZoneOffsetCache.getInstance().getOffset(utcDate);
         return utcDate - gmtOffset;
     }
 
@@ -83,11 +82,20 @@ public final class SunshineDateUtils {
      * @return The UTC date (the local datetime + the TimeZone offset) in milliseconds.
      */
     public static long getUTCDateFromLocal(long localDate) {
-        TimeZone tz = TimeZone.getDefault();
-        long gmtOffset = tz.getOffset(localDate);
+        long gmtOffset = TimeZoneOffsetCache.getInstance().getOffset(localDate);
         return localDate + gmtOffset;
     }
 
+    /**
+     * Returns today's date as stored in the database: the current time converted to UTC and
+     * normalized.
+     *
+     * @return The UTC date of today at 12 midnight
+     */
+    public static long getNormalizedUtcDateForToday() {
+        return normalizeDate(getUTCDateFromLocal(System.currentTimeMillis()));
+    }
+
     /**
      * Helper method to convert the database representation of the date into something to display
      * to users.  As classy and polished a user experience as "20140102" is, we can do better.
@@ -105,19 +113,34 @@ public final class SunshineDateUtils {
      *
      * @return A user-friendly representation of the date such as "Today, June 8", "Tomorrow",
      * or "Friday"
+     *
+     * @see DateLabelCache
      */
     public static String getFriendlyDateString(Context context, long dateInMillis, boolean showFullDate) {
+        return DateLabelCache.getInstance(context).getLabel(dateInMillis, showFullDate);
+    }
+
+    /**
+     * Makes the label of {@link #getFriendlyDateString(Context, long, boolean)} without caching
+     * it.
+     *
+     * @param context          Context to use for resource localization
+     * @param dateInMillis     The date in milliseconds (UTC)
+     * @param showFullDate     Used to show a fuller-version of the date
+     * @param currentDayNumber Today's local day number, see {@link #getDayNumber(long)}
+     */
+    static String formatFriendlyDateString(Context context, long dateInMillis,
+                                           boolean showFullDate, long currentDayNumber) {
 
         long localDate = getLocalDateFromUTC(dateInMillis);
         long dayNumber = getDayNumber(localDate);
-        long currentDayNumber = getDayNumber(System.currentTimeMillis());
 
         if (dayNumber == currentDayNumber || showFullDate) {
             /*
              * If the date we're building the String for is today's date, the format
              * is "Today, June 24"
              */
-            String dayName = getDayName(context, localDate);
+            String dayName = getDayName(context, localDate, dayNumber, currentDayNumber);
             String readableDate = getReadableDateString(context, localDate);
             if (dayNumber - currentDayNumber < 2) {
                 /*
@@ -130,14 +153,14 @@ public final class SunshineDateUtils {
                  * documentation on DateFormat#getBestDateTimePattern(Locale, String)
                  * https://developer.android.com/reference/android/text/format/DateFormat.html#getBestDateTimePattern
                  */
-                String localizedDayName = new SimpleDateFormat("EEEE").format(localDate);
+                String localizedDayName = formatDayOfWeek(localDate);
                 return readableDate.replace(localizedDayName, dayName);
             } else {
                 return readableDate;
             }
         } else if (dayNumber < currentDayNumber + 7) {
             /* If the input date is less than a week in the future, just return the day name. */
-            return getDayName(context, localDate);
+            return getDayName(context, localDate, dayNumber, currentDayNumber);
         } else {
             int flags = DateUtils.FORMAT_SHOW_DATE
                     | DateUtils.FORMAT_NO_YEAR
@@ -169,18 +192,19 @@ public final class SunshineDateUtils {
      * Given a day, returns just the name to use for that day.
      *   E.g "today", "tomorrow", "Wednesday".
      *
-     * @param context      Context to use for resource localization
-     * @param dateInMillis The date in milliseconds (local time)
+     * @param context          Context to use for resource localization
+     * @param dateInMillis     The date in milliseconds (local time)
+     * @param dayNumber        Day number of the date
+     * @param currentDayNumber Day number of today
      *
      * @return the string day of the week
      */
-    private static String getDayName(Context context, long dateInMillis) {
+    private static String getDayName(Context context, long dateInMillis, long dayNumber,
+                                     long currentDayNumber) {
         /*
          * If the date is today, return the localized version of "Today" instead of the actual
          * day name.
          */
-        long dayNumber = getDayNumber(dateInMillis);
-        long currentDayNumber = getDayNumber(System.currentTimeMillis());
         if (dayNumber == currentDayNumber) {
             return context.getString(R.string.today);
         } else if (dayNumber == currentDayNumber + 1) {
@@ -190,8 +214,32 @@ public final class SunshineDateUtils {
              * Otherwise, if the day is not today, the format is just the day of the week
              * (e.g "Wednesday")
              */
-            SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE");
-            return dayFormat.format(dateInMillis);
+            return formatDayOfWeek(dateInMillis);
+        }
+    }
+
+    /* SimpleDateFormat is not thread safe, so every thread keeps its own */
+    private static final ThreadLocal<DayOfWeekFormat> sDayOfWeekFormat = new ThreadLocal<>();
+
+    /* Formats the day of the week, e.g "Wednesday", in the default locale and time zone */
+    private static String formatDayOfWeek(long dateInMillis) {
+        Locale locale = Locale.getDefault();
+        DayOfWeekFormat dayFormat = sDayOfWeekFormat.get();
+        if (dayFormat == null || dayFormat.locale != locale) {
+            dayFormat = new DayOfWeekFormat(locale);
+            sDayOfWeekFormat.set(dayFormat);
+        }
+        dayFormat.format.setTimeZone(TimeZone.getDefault());
+        return dayFormat.format.format(dateInMillis);
+    }
+
+    private static final class DayOfWeekFormat {
+        final Locale locale;
+        final SimpleDateFormat format;
+
+        DayOfWeekFormat(Locale locale) {
+            this.locale = locale;
+            this.format = new SimpleDateFormat("EEEE", locale);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,19 @@
 package com.example.android.sunshine.utilities;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Resources;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
+import com.example.android.sunshine.R;
 import com.example.android.sunshine.data.AppExecutors;
+import com.example.android.sunshine.data.PriorityExecutor;
+import com.example.android.sunshine.data.SunshinePreferences;
 import com.example.android.sunshine.data.database.AppDatabase;
+import com.example.android.sunshine.sync.AdaptiveSyncScheduler;
 import com.example.android.sunshine.sync.SunshineFirebaseJobService;
 import com.example.android.sunshine.sync.SunshineSyncIntentService;
+import com.example.android.sunshine.sync.SyncResult;
 import com.firebase.jobdispatcher.Constraint;
 import com.firebase.jobdispatcher.Driver;
 import com.firebase.jobdispatcher.FirebaseJobDispatcher;
@@ -23,15 +29,10 @@ public class SunshineSyncUtils {
     /* Constants for FirebaseJobDispatcher */
     // Tag
     private static final String SUNSHINE_SYNC_TAG = "sunshine-sync-tag";
-    // Interval at which to sync data
-    private static final int REMINDER_INTERVAL_HOURS = 3;
-    private static final int REMINDER_INTERVAL_SECONDS = (int) TimeUnit.HOURS.toSeconds(REMINDER_INTERVAL_HOURS);
-//    private static final int REMINDER_INTERVAL_SECONDS = 60;
-    private static final int SYNC_FLEXTIME_MINUTES = 5;
-    private static final int SYNC_FLEXTIME_SECONDS = (int) TimeUnit.MINUTES.toSeconds(SYNC_FLEXTIME_MINUTES);
-//    private static final int SYNC_FLEXTIME_SECONDS = 15;
 
     private static boolean sInitialized = false;
+    /* Picks the sync interval, created on first use */
+    private static AdaptiveSyncScheduler sScheduler;
 
 
     /**
@@ -53,7 +54,9 @@ public class SunshineSyncUtils {
 
         /* Schedule the job */
         sInitialized = true;
-        scheduleFirebaseJobDispatcherSync(context);
+        AdaptiveSyncScheduler scheduler = getScheduler(context);
+        scheduler.start();
+        saveSchedule(context, scheduler);
 
         /*
          * If DB is empty then sync
@@ -64,16 +67,61 @@ public class SunshineSyncUtils {
             if (count == 0){
                 startImmediateSync(context);
             }
-        });
+        }, PriorityExecutor.Priority.BACKGROUND);
 
     }
 
+    /**
+     * Lets the scheduler adapt the sync interval to a finished sync and saves its state.
+     *
+     * @param context Used to reschedule the sync and access SharedPreferences
+     * @param result Outcome of the sync
+     */
+    synchronized public static void onSyncFinished(@NonNull Context context, SyncResult result){
+        AdaptiveSyncScheduler scheduler = getScheduler(context);
+        scheduler.onSyncFinished(result);
+        saveSchedule(context, scheduler);
+    }
+
+    private static void saveSchedule(Context context, AdaptiveSyncScheduler scheduler){
+        SunshinePreferences.saveSyncSchedule(context, scheduler.getIntervalMillis(),
+                scheduler.getScheduledDelayMillis(), scheduler.getVolatility(),
+                scheduler.getLastSuccessMillis());
+    }
+
+    private static AdaptiveSyncScheduler getScheduler(Context context){
+        if (sScheduler == null){
+            Context appContext = context.getApplicationContext();
+            Resources resources = appContext.getResources();
+            AdaptiveSyncScheduler.Config config = new AdaptiveSyncScheduler.Config(
+                    minutesToMillis(resources.getInteger(R.integer.sync_min_interval_minutes)),
+                    minutesToMillis(resources.getInteger(R.integer.sync_initial_interval_minutes)),
+                    minutesToMillis(resources.getInteger(R.integer.sync_max_staleness_minutes)),
+                    minutesToMillis(resources.getInteger(R.integer.sync_flex_minutes)));
+            sScheduler = new AdaptiveSyncScheduler(config,
+                    System::currentTimeMillis,
+                    (windowStartMillis, windowEndMillis) -> scheduleFirebaseJobDispatcherSync(
+                            appContext, windowStartMillis, windowEndMillis),
+                    SunshinePreferences.getSyncIntervalMillis(appContext),
+                    SunshinePreferences.getScheduledSyncDelayMillis(appContext),
+                    SunshinePreferences.getSyncVolatility(appContext, SyncResult.UNKNOWN_VOLATILITY),
+                    SunshinePreferences.getLastSuccessfulSyncTimeInMillis(appContext));
+        }
+        return sScheduler;
+    }
+
+    private static long minutesToMillis(int minutes){
+        return TimeUnit.MINUTES.toMillis(minutes);
+    }
+
     public static void startImmediateSync(Context context){
         Intent syncWeatherIntent = new Intent(context, SunshineSyncIntentService.class);
         context.startService(syncWeatherIntent);
     }
 
-    private static void scheduleFirebaseJobDispatcherSync(@NonNull final Context context){
+    private static void scheduleFirebaseJobDispatcherSync(@NonNull final Context context,
+                                                          long windowStartMillis,
+                                                          long windowEndMillis){
 
         Driver driver = new GooglePlayDriver(context);
         FirebaseJobDispatcher dispatcher = new FirebaseJobDispatcher(driver);
@@ -94,14 +142,14 @@ public class SunshineSyncUtils {
                 /* The job should reoccur so that the weather will be up to date */
                 .setRecurring(true)
                 /*
-                 * Weather data should be synced every 3 hours. The first argument for
+                 * The window comes from the AdaptiveSyncScheduler. The first argument for
                  * Trigger's static executionWindow method is the start of the time frame when the
                  * sync should be performed. The second argument is the latest point in time at
                  * which the data should be synced.
                  */
                 .setTrigger(Trigger.executionWindow(
-                        REMINDER_INTERVAL_SECONDS,
-                        REMINDER_INTERVAL_SECONDS + SYNC_FLEXTIME_SECONDS))
+                        (int) TimeUnit.MILLISECONDS.toSeconds(windowStartMillis),
+                        (int) TimeUnit.MILLISECONDS.toSeconds(windowEndMillis)))
                 .setReplaceCurrent(true)
                 .build();
 
@@ -0,0 +1,19 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Drops the cached time zone offsets when the user changes the time zone. Declared in the
+ * manifest, so the sync sees the new zone even if no screen is open.
+ */
+public class TimeZoneChangeReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+            TimeZoneOffsetCache.getInstance().invalidate();
+        }
+    }
+}
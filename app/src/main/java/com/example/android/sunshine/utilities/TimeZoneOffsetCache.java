@@ -0,0 +1,153 @@
+package com.example.android.sunshine.utilities;
+
+import java.util.TimeZone;
+
+/**
+ * Caches the UTC offset of a time zone over the interval around the last lookup in which the
+ * offset does not change. Lookups inside the interval are a range check; the zone is asked again
+ * only past a DST transition, past {@link #MAX_INTERVAL_MILLIS} or after the zone changed.
+ * <p>
+ * The shared instance follows the default time zone. {@link TimeZoneChangeReceiver} invalidates
+ * it when the user changes the zone.
+ */
+public final class TimeZoneOffsetCache {
+
+    /*
+     * Transitions are searched day by day up to this far from the lookup, so two transitions
+     * within one day would be missed. No zone has those.
+     */
+    private static final long SEARCH_STEP_MILLIS = SunshineDateUtils.DAY_IN_MILLIS;
+    static final long MAX_INTERVAL_MILLIS = 32 * SunshineDateUtils.DAY_IN_MILLIS;
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    private static volatile TimeZoneOffsetCache sInstance;
+
+    /* True if mZone is re-read from the default on invalidation */
+    private final boolean mFollowsDefault;
+    private TimeZone mZone;
+
+    /* The offset is mOffset for start <= utc < end */
+    private long mIntervalStart;
+    private long mIntervalEnd;
+    private int mOffset;
+
+    private int mHits;
+    private int mMisses;
+
+    /**
+     * Creates a cache for a fixed zone.
+     */
+    public TimeZoneOffsetCache(TimeZone zone) {
+        this(zone, false);
+    }
+
+    private TimeZoneOffsetCache(TimeZone zone, boolean followsDefault) {
+        mZone = zone;
+        mFollowsDefault = followsDefault;
+        clearInterval();
+    }
+
+    /**
+     * Returns the cache of the default time zone.
+     */
+    public static TimeZoneOffsetCache getInstance() {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    sInstance = new TimeZoneOffsetCache(TimeZone.getDefault(), true);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the offset from UTC at the given instant, in milliseconds, the same as
+     * {@link TimeZone#getOffset(long)}.
+     */
+    public synchronized int getOffset(long utcMillis) {
+        if (utcMillis >= mIntervalStart && utcMillis < mIntervalEnd) {
+            mHits++;
+            return mOffset;
+        }
+        mMisses++;
+        findInterval(utcMillis);
+        return mOffset;
+    }
+
+    /**
+     * Forgets the cached interval. A cache of the default zone also reads the default zone
+     * again.
+     */
+    public synchronized void invalidate() {
+        if (mFollowsDefault) {
+            mZone = TimeZone.getDefault();
+        }
+        clearInterval();
+    }
+
+    private void clearInterval() {
+        mIntervalStart = Long.MAX_VALUE;
+        mIntervalEnd = Long.MIN_VALUE;
+    }
+
+    /* Finds the largest interval around the instant, within MAX_INTERVAL_MILLIS, with one offset */
+    private void findInterval(long utcMillis) {
+        int offset = mZone.getOffset(utcMillis);
+
+        long end = utcMillis;
+        while (end - utcMillis < MAX_INTERVAL_MILLIS) {
+            long next = end + SEARCH_STEP_MILLIS;
+            if (mZone.getOffset(next) != offset) {
+                /* The transition is in (end, next] */
+                end = firstChange(end, next, offset);
+                break;
+            }
+            end = next;
+        }
+
+        long start = utcMillis;
+        while (utcMillis - start < MAX_INTERVAL_MILLIS) {
+            long previous = start - SEARCH_STEP_MILLIS;
+            if (mZone.getOffset(previous) != offset) {
+                /* The transition is in (previous, start] */
+                start = firstChange(previous, start, mZone.getOffset(previous));
+                break;
+            }
+            start = previous;
+        }
+
+        mOffset = offset;
+        mIntervalStart = start;
+        /* Exclusive; without a transition the end itself still has the offset */
+        mIntervalEnd = mZone.getOffset(end) == offset ? end + 1 : end;
+    }
+
+    /*
+     * Binary search for the first instant in (low, high] whose offset differs from lowOffset,
+     * which is the offset at low.
+     */
+    private long firstChange(long low, long high, int lowOffset) {
+        while (high - low > 1) {
+            long middle = low + (high - low) / 2;
+            if (mZone.getOffset(middle) == lowOffset) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+
+    public synchronized int getHitCount() { return mHits; }
+
+    public synchronized int getMissCount() { return mMisses; }
+
+    @Override
+    public synchronized String toString() {
+        return "TimeZoneOffsetCache " + mZone.getID()
+                + " hits " + mHits
+                + ", misses " + mMisses;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.android.sunshine.utilities;
+
+import com.example.android.sunshine.R;
+
+import java.util.Arrays;
+
+/**
+ * Everything the app shows for an OpenWeatherMap condition id, in arrays indexed by the id and
+ * built once: the description string, the small and large art and a coarse category. Lookups are
+ * an array access.
+ * <p>
+ * See http://openweathermap.org/weather-conditions for a list of all IDs.
+ */
+public final class WeatherConditionCatalog {
+
+    /* Coarse categories, e.g. to find the next rainy day */
+    public static final int CATEGORY_UNKNOWN = 0;
+    public static final int CATEGORY_STORM = 1;
+    public static final int CATEGORY_DRIZZLE = 2;
+    public static final int CATEGORY_RAIN = 3;
+    public static final int CATEGORY_SNOW = 4;
+    public static final int CATEGORY_ATMOSPHERE = 5;
+    public static final int CATEGORY_CLEAR = 6;
+    public static final int CATEGORY_CLOUDS = 7;
+    public static final int CATEGORY_WIND = 8;
+    public static final int CATEGORY_EXTREME = 9;
+    private static final int CATEGORY_COUNT = 10;
+
+    private static final int MIN_ID = 200;
+    private static final int MAX_ID = 962;
+
+    /* Indexed by weather id - MIN_ID, 0 where there is no mapping */
+    private static final int[] sDescriptions = new int[MAX_ID - MIN_ID + 1];
+    private static final int[] sSmallArt = new int[MAX_ID - MIN_ID + 1];
+    private static final int[] sLargeArt = new int[MAX_ID - MIN_ID + 1];
+    private static final byte[] sCategories = new byte[MAX_ID - MIN_ID + 1];
+    /* Known ids of each category, ascending */
+    private static final int[][] sIdsByCategory = new int[CATEGORY_COUNT][];
+
+    static {
+        range(200, 232, CATEGORY_STORM, R.drawable.ic_storm, R.drawable.art_storm);
+        range(300, 321, CATEGORY_DRIZZLE, R.drawable.ic_light_rain, R.drawable.art_light_rain);
+        range(500, 504, CATEGORY_RAIN, R.drawable.ic_rain, R.drawable.art_rain);
+        /* Freezing rain is rain, but looks like snow */
+        range(511, 511, CATEGORY_RAIN, R.drawable.ic_snow, R.drawable.art_snow);
+        range(520, 531, CATEGORY_RAIN, R.drawable.ic_rain, R.drawable.art_rain);
+        range(600, 622, CATEGORY_SNOW, R.drawable.ic_snow, R.drawable.art_snow);
+        range(701, 761, CATEGORY_ATMOSPHERE, R.drawable.ic_fog, R.drawable.art_fog);
+        range(771, 771, CATEGORY_STORM, R.drawable.ic_storm, R.drawable.art_storm);
+        range(781, 781, CATEGORY_STORM, R.drawable.ic_storm, R.drawable.art_storm);
+        range(800, 800, CATEGORY_CLEAR, R.drawable.ic_clear, R.drawable.art_clear);
+        range(801, 801, CATEGORY_CLOUDS, R.drawable.ic_light_clouds, R.drawable.art_light_clouds);
+        range(802, 804, CATEGORY_CLOUDS, R.drawable.ic_cloudy, R.drawable.art_clouds);
+        range(900, 906, CATEGORY_EXTREME, R.drawable.ic_storm, R.drawable.art_storm);
+        /* Calm to strong breeze */
+        range(951, 957, CATEGORY_WIND, R.drawable.ic_clear, R.drawable.art_clear);
+        /* Gale to hurricane */
+        range(958, 962, CATEGORY_EXTREME, R.drawable.ic_storm, R.drawable.art_storm);
+
+        for (int id = 200; id <= 232; id++) describe(id, R.string.condition_2xx);
+        for (int id = 300; id <= 321; id++) describe(id, R.string.condition_3xx);
+        describe(500, R.string.condition_500);
+        describe(501, R.string.condition_501);
+        describe(502, R.string.condition_502);
+        describe(503, R.string.condition_503);
+        describe(504, R.string.condition_504);
+        describe(511, R.string.condition_511);
+        describe(520, R.string.condition_520);
+        describe(531, R.string.condition_531);
+        describe(600, R.string.condition_600);
+        describe(601, R.string.condition_601);
+        describe(602, R.string.condition_602);
+        describe(611, R.string.condition_611);
+        describe(612, R.string.condition_612);
+        describe(615, R.string.condition_615);
+        describe(616, R.string.condition_616);
+        describe(620, R.string.condition_620);
+        describe(621, R.string.condition_621);
+        describe(622, R.string.condition_622);
+        describe(701, R.string.condition_701);
+        describe(711, R.string.condition_711);
+        describe(721, R.string.condition_721);
+        describe(731, R.string.condition_731);
+        describe(741, R.string.condition_741);
+        describe(751, R.string.condition_751);
+        describe(761, R.string.condition_761);
+        describe(762, R.string.condition_762);
+        describe(771, R.string.condition_771);
+        describe(781, R.string.condition_781);
+        describe(800, R.string.condition_800);
+        describe(801, R.string.condition_801);
+        describe(802, R.string.condition_802);
+        describe(803, R.string.condition_803);
+        describe(804, R.string.condition_804);
+        describe(900, R.string.condition_900);
+        describe(901, R.string.condition_901);
+        describe(902, R.string.condition_902);
+        describe(903, R.string.condition_903);
+        describe(904, R.string.condition_904);
+        describe(905, R.string.condition_905);
+        describe(906, R.string.condition_906);
+        describe(951, R.string.condition_951);
+        describe(952, R.string.condition_952);
+        describe(953, R.string.condition_953);
+        describe(954, R.string.condition_954);
+        describe(955, R.string.condition_955);
+        describe(956, R.string.condition_956);
+        describe(957, R.string.condition_957);
+        describe(958, R.string.condition_958);
+        describe(959, R.string.condition_959);
+        describe(960, R.string.condition_960);
+        describe(961, R.string.condition_961);
+        describe(962, R.string.condition_962);
+
+        int[] counts = new int[CATEGORY_COUNT];
+        for (byte category : sCategories) counts[category]++;
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            sIdsByCategory[category] = new int[counts[category]];
+            counts[category] = 0;
+        }
+        for (int i = 0; i < sCategories.length; i++) {
+            int category = sCategories[i];
+            if (category != CATEGORY_UNKNOWN) {
+                sIdsByCategory[category][counts[category]++] = i + MIN_ID;
+            }
+        }
+    }
+
+    private WeatherConditionCatalog() {
+    }
+
+    private static void range(int fromId, int toId, int category, int smallArt, int largeArt) {
+        for (int id = fromId; id <= toId; id++) {
+            sCategories[id - MIN_ID] = (byte) category;
+            sSmallArt[id - MIN_ID] = smallArt;
+            sLargeArt[id - MIN_ID] = largeArt;
+        }
+    }
+
+    private static void describe(int id, int stringId) {
+        sDescriptions[id - MIN_ID] = stringId;
+    }
+
+    private static boolean inRange(int weatherId) {
+        return weatherId >= MIN_ID && weatherId <= MAX_ID;
+    }
+
+    /**
+     * Returns the string resource describing a condition, 0 if there is none.
+     */
+    public static int getDescriptionResId(int weatherId) {
+        return inRange(weatherId) ? sDescriptions[weatherId - MIN_ID] : 0;
+    }
+
+    /**
+     * Returns the small art of a condition, for the future days of the list, 0 if there is none.
+     */
+    public static int getSmallArtResId(int weatherId) {
+        return inRange(weatherId) ? sSmallArt[weatherId - MIN_ID] : 0;
+    }
+
+    /**
+     * Returns the large art of a condition, for today and the detail screen, 0 if there is none.
+     */
+    public static int getLargeArtResId(int weatherId) {
+        return inRange(weatherId) ? sLargeArt[weatherId - MIN_ID] : 0;
+    }
+
+    /**
+     * Returns the category of a condition, {@link #CATEGORY_UNKNOWN} for unknown ids.
+     */
+    public static int getCategory(int weatherId) {
+        return inRange(weatherId) ? sCategories[weatherId - MIN_ID] : CATEGORY_UNKNOWN;
+    }
+
+    /**
+     * Returns every known weather id in the given categories, ascending. Pass the result to a
+     * query that filters on weather_id, e.g.
+     * {@link com.example.android.sunshine.data.database.WeatherDao#getFirstWeatherWithConditionNow}.
+     *
+     * @param categories CATEGORY_ constants other than {@link #CATEGORY_UNKNOWN}
+     */
+    public static int[] getWeatherIds(int... categories) {
+        int count = 0;
+        for (int category : categories) {
+            count += sIdsByCategory[category].length;
+        }
+        int[] ids = new int[count];
+        int position = 0;
+        for (int category : categories) {
+            int[] categoryIds = sIdsByCategory[category];
+            System.arraycopy(categoryIds, 0, ids, position, categoryIds.length);
+            position += categoryIds.length;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+}
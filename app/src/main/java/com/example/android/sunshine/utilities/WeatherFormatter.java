@@ -0,0 +1,146 @@
+package com.example.android.sunshine.utilities;
+
+import android.content.Context;
+
+import com.example.android.sunshine.R;
+import com.example.android.sunshine.data.SunshinePreferences;
+
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Formats temperatures and wind for one unit system. Rounded temperatures in the range weather
+ * actually reaches are formatted once, when the formatter is made, and then looked up; wind
+ * directions come from a compass table. Only values outside the tables are formatted, into a
+ * reused builder.
+ * <p>
+ * Get a formatter once per render pass, e.g. per list page or per screen bind, so the units are
+ * read once rather than for every value. Formatters are shared and rebuilt when the locale
+ * changes.
+ */
+public final class WeatherFormatter {
+
+    /* Rounded temperatures with a precomputed string, in the displayed unit */
+    static final int MIN_TABLE_TEMPERATURE = -130;
+    static final int MAX_TABLE_TEMPERATURE = 140;
+
+    /* Eight points, clockwise from north, each 45 degrees wide */
+    private static final String[] COMPASS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    private static final double KMH_TO_MPH = .621371192237334;
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    /* Metric and imperial formatters of sLocale */
+    private static volatile WeatherFormatter sMetric;
+    private static volatile WeatherFormatter sImperial;
+    private static Locale sLocale;
+
+    private final boolean mMetric;
+    private final String mTemperatureFormat;
+    private final String mWindFormat;
+    /* Index is the rounded temperature - MIN_TABLE_TEMPERATURE */
+    private final String[] mTemperatures;
+
+    /* Only used under the instance lock */
+    private final StringBuilder mBuilder = new StringBuilder();
+    private final Formatter mFormatter;
+
+    private WeatherFormatter(Context context, boolean metric, Locale locale) {
+        mMetric = metric;
+        mTemperatureFormat = context.getString(R.string.format_temperature);
+        mWindFormat = context.getString(metric ? R.string.format_wind_kmh : R.string.format_wind_mph);
+        mFormatter = new Formatter(mBuilder, locale);
+
+        mTemperatures = new String[MAX_TABLE_TEMPERATURE - MIN_TABLE_TEMPERATURE + 1];
+        for (int i = 0; i < mTemperatures.length; i++) {
+            mTemperatures[i] = format(mTemperatureFormat, (double) (i + MIN_TABLE_TEMPERATURE));
+        }
+    }
+
+    /**
+     * Returns the formatter for the given units.
+     *
+     * @param context  Used to load the formats the first time
+     * @param isMetric True for Celsius and km/h, false for Fahrenheit and mph
+     */
+    public static WeatherFormatter getInstance(Context context, boolean isMetric) {
+        WeatherFormatter formatter = isMetric ? sMetric : sImperial;
+        /* Locale.getDefault() returns the same instance until the locale changes */
+        if (formatter == null || sLocale != Locale.getDefault()) {
+            synchronized (LOCK) {
+                Locale locale = Locale.getDefault();
+                if (sLocale != locale) {
+                    sMetric = null;
+                    sImperial = null;
+                    sLocale = locale;
+                }
+                formatter = isMetric ? sMetric : sImperial;
+                if (formatter == null) {
+                    formatter = new WeatherFormatter(context.getApplicationContext(), isMetric,
+                            locale);
+                    if (isMetric) {
+                        sMetric = formatter;
+                    } else {
+                        sImperial = formatter;
+                    }
+                }
+            }
+        }
+        return formatter;
+    }
+
+    /**
+     * Returns the formatter for the units the user prefers.
+     */
+    public static WeatherFormatter getInstance(Context context) {
+        return getInstance(context, SunshinePreferences.isMetric(context));
+    }
+
+    public boolean isMetric() { return mMetric; }
+
+    /**
+     * Formats a temperature without decimals, e.g. "21°".
+     *
+     * @param temperature Temperature in degrees Celsius (°C), converted if the units are imperial
+     */
+    public String formatTemperature(double temperature) {
+        if (!mMetric) {
+            temperature = (temperature * 1.8) + 32;
+        }
+        /* Half up, away from zero, as the format's %1.0f rounds */
+        double rounded = temperature < 0 ? -Math.floor(-temperature + .5)
+                : Math.floor(temperature + .5);
+        if (rounded >= MIN_TABLE_TEMPERATURE && rounded <= MAX_TABLE_TEMPERATURE) {
+            return mTemperatures[(int) rounded - MIN_TABLE_TEMPERATURE];
+        }
+        return format(mTemperatureFormat, temperature);
+    }
+
+    /**
+     * Formats wind speed and direction, e.g. "2 km/h SW".
+     *
+     * @param windSpeed Wind speed in kilometers / hour, converted if the units are imperial
+     * @param degrees   Direction the wind comes from, as measured on a compass
+     */
+    public String formatWind(float windSpeed, float degrees) {
+        double speed = mMetric ? windSpeed : KMH_TO_MPH * windSpeed;
+        return format(mWindFormat, speed, getCompassDirection(degrees));
+    }
+
+    /**
+     * Returns the compass point of a direction, e.g. "NW", or "Unknown" if it is not a number.
+     */
+    static String getCompassDirection(float degrees) {
+        if (Float.isNaN(degrees)) return "Unknown";
+        /* Anything from 337.5 and below 22.5, including out of range values, is north */
+        if (degrees >= 337.5f || degrees < 22.5f) return COMPASS[0];
+        return COMPASS[(int) ((degrees - 22.5f) / 45) + 1];
+    }
+
+    private synchronized String format(String format, Object... args) {
+        mBuilder.setLength(0);
+        mFormatter.format(format, args);
+        return mBuilder.toString();
+    }
+}
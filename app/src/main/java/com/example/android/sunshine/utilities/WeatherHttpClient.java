@@ -0,0 +1,577 @@
+package com.example.android.sunshine.utilities;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared HTTP client used for every request that goes to the weather servers.
+ * <p>
+ * The platform {@link HttpURLConnection} already keeps a pool of idle keep-alive connections,
+ * with its default size, but a connection only goes back to that pool when its response body
+ * has been read to the end and closed, and it is thrown away when
+ * {@link HttpURLConnection#disconnect()} is called. This client drains and closes the body and
+ * only disconnects a canceled request or one with too much left unread to be worth draining, so
+ * consecutive syncs reuse the same TCP/TLS connection. It also asks for compressed responses and
+ * decodes gzip/deflate bodies itself.
+ * <p>
+ * Bodies can either be read into a String by {@link #get(URL, Map)}, or handed to a
+ * {@link BodyHandler} as a buffered, charset-aware Reader by {@link #get(URL, Map, BodyHandler)},
+ * so a parser can consume the response while it arrives. Either way a body larger than the
+ * configured limit fails the request instead of exhausting the heap.
+ * <p>
+ * A request made with a {@link CancellationToken} is aborted when the token is canceled, even
+ * while blocked on the network, and its timeouts never reach past the token's deadline.
+ */
+public final class WeatherHttpClient {
+
+    private static final String TAG = WeatherHttpClient.class.getSimpleName();
+
+    /* Default timeouts used by the shared instance */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 15000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 20000;
+
+    /* Default number of requests that may run against one host at the same time */
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 2;
+
+    /* Default limit of a decoded response body. A 16 day forecast is around 10 KB */
+    public static final long DEFAULT_MAX_BODY_BYTES = 1024 * 1024;
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONNECTION = "Connection";
+    private static final String ENCODING_GZIP = "gzip";
+    private static final String ENCODING_DEFLATE = "deflate";
+
+    /* How often a cancellable request waiting for its host checks its token */
+    private static final long PERMIT_POLL_MILLIS = 100;
+
+    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+
+    /* Unread wire bytes worth draining to keep a connection, reconnecting is cheaper beyond */
+    private static final long MAX_DRAIN_BYTES = 64 * 1024;
+
+    // For singleton instantiation
+    private static final Object LOCK = new Object();
+    private static volatile WeatherHttpClient sInstance;
+
+    private final int mConnectTimeoutMillis;
+    private final int mReadTimeoutMillis;
+    private final int mMaxRequestsPerHost;
+    private final long mMaxBodyBytes;
+
+    /* One semaphore per host bounds how many requests hit that host concurrently */
+    private final ConcurrentHashMap<String, Semaphore> mHostPermits = new ConcurrentHashMap<>();
+
+    /* Total number of compressed bytes received by this client */
+    private final AtomicLong mWireBytes = new AtomicLong();
+
+    public WeatherHttpClient(int connectTimeoutMillis, int readTimeoutMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, DEFAULT_MAX_REQUESTS_PER_HOST);
+    }
+
+    public WeatherHttpClient(int connectTimeoutMillis, int readTimeoutMillis,
+                             int maxRequestsPerHost) {
+        this(connectTimeoutMillis, readTimeoutMillis, maxRequestsPerHost, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    public WeatherHttpClient(int connectTimeoutMillis, int readTimeoutMillis,
+                             int maxRequestsPerHost, long maxBodyBytes) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+        mMaxRequestsPerHost = maxRequestsPerHost;
+        mMaxBodyBytes = maxBodyBytes;
+    }
+
+    public static WeatherHttpClient getInstance() {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    sInstance = new WeatherHttpClient(DEFAULT_CONNECT_TIMEOUT_MILLIS,
+                            DEFAULT_READ_TIMEOUT_MILLIS);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    public int getConnectTimeoutMillis() { return mConnectTimeoutMillis; }
+
+    public int getReadTimeoutMillis() { return mReadTimeoutMillis; }
+
+    public int getMaxRequestsPerHost() { return mMaxRequestsPerHost; }
+
+    public long getMaxBodyBytes() { return mMaxBodyBytes; }
+
+    /**
+     * Returns the total number of bytes that were read from the network by this client, before
+     * any decompression took place.
+     */
+    public long getTotalWireBytes() { return mWireBytes.get(); }
+
+    /**
+     * Performs a GET request without any additional headers.
+     *
+     * @param url The URL to fetch
+     * @return The decoded response
+     * @throws IOException Related to network and stream reading
+     */
+    public Response get(URL url) throws IOException {
+        return get(url, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Performs a GET request and reads the whole (decoded) body. If the host already has the
+     * maximum number of requests running, this waits for one of them to finish.
+     *
+     * @param url            The URL to fetch
+     * @param requestHeaders Extra request headers to send
+     * @return The decoded response
+     * @throws IOException Related to network and stream reading
+     */
+    public Response get(URL url, Map<String, String> requestHeaders) throws IOException {
+        return get(url, requestHeaders, (response, body) -> {
+            response.mBody = readFully(body);
+            return response;
+        });
+    }
+
+    /**
+     * Performs a GET request and hands the decoded body to a handler while the response is still
+     * being received, so the body never has to be held in memory as a whole. If the host already
+     * has the maximum number of requests running, this waits for one of them to finish.
+     *
+     * @param url            The URL to fetch
+     * @param requestHeaders Extra request headers to send
+     * @param handler        Consumes the body, runs on the calling thread
+     * @return Whatever the handler returned
+     * @throws IOException Related to network and stream reading, or thrown by the handler
+     */
+    public <T> T get(URL url, Map<String, String> requestHeaders, BodyHandler<T> handler)
+            throws IOException {
+        return get(url, requestHeaders, handler, null);
+    }
+
+    /**
+     * Like {@link #get(URL, Map, BodyHandler)}, but gives up as soon as the token is canceled or
+     * its deadline passes, whether waiting for the host, connecting or reading the body.
+     *
+     * @param token Cancels the request, or null if it cannot be canceled
+     * @throws CancellationToken.CanceledException If the token was canceled
+     */
+    public <T> T get(URL url, Map<String, String> requestHeaders, BodyHandler<T> handler,
+                     @Nullable CancellationToken token) throws IOException {
+        Semaphore permits = permitsFor(url.getHost());
+        try {
+            if (token == null) {
+                permits.acquire();
+            } else {
+                /* Wake up now and then to see whether the token was canceled */
+                while (!permits.tryAcquire(Math.min(PERMIT_POLL_MILLIS, token.getRemainingMillis()),
+                        TimeUnit.MILLISECONDS)) {
+                    token.throwIfCanceled();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + url.getHost());
+        }
+        try {
+            return execute(url, requestHeaders, handler, token);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Semaphore permitsFor(String host) {
+        Semaphore permits = mHostPermits.get(host);
+        if (permits == null) {
+            Semaphore created = new Semaphore(mMaxRequestsPerHost, true);
+            permits = mHostPermits.putIfAbsent(host, created);
+            if (permits == null) permits = created;
+        }
+        return permits;
+    }
+
+    private <T> T execute(URL url, Map<String, String> requestHeaders, BodyHandler<T> handler,
+                          CancellationToken token) throws IOException {
+        if (token != null) token.throwIfCanceled();
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(boundTimeout(mConnectTimeoutMillis, token));
+        connection.setReadTimeout(boundTimeout(mReadTimeoutMillis, token));
+        connection.setUseCaches(false);
+        connection.setRequestProperty(HEADER_ACCEPT_ENCODING,
+                ENCODING_GZIP + ", " + ENCODING_DEFLATE);
+        connection.setRequestProperty(HEADER_CONNECTION, "keep-alive");
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        /* Disconnecting from the token's listener thread unblocks whatever this thread waits on */
+        CancellationToken.Registration registration =
+                token == null ? null : token.onCancel(connection::disconnect);
+        boolean completed = false;
+        try {
+            T result = execute(url, connection, handler, token);
+            completed = true;
+            return result;
+        } catch (IOException e) {
+            /* A read that failed because of the disconnect is reported as a cancellation */
+            if (token != null) token.throwIfCanceled();
+            throw e;
+        } finally {
+            if (registration != null) registration.unregister();
+            /* A connection in an unknown state, e.g. after a failed connect, must not be reused */
+            if (!completed) connection.disconnect();
+        }
+    }
+
+    private <T> T execute(URL url, HttpURLConnection connection, BodyHandler<T> handler,
+                          CancellationToken token) throws IOException {
+        long startNanos = System.nanoTime();
+        connection.connect();
+        long connectedNanos = System.nanoTime();
+        int code = connection.getResponseCode();
+        long firstByteNanos = System.nanoTime();
+
+        /* Error responses carry their body on the error stream */
+        InputStream raw = code >= HttpURLConnection.HTTP_BAD_REQUEST
+                ? connection.getErrorStream()
+                : connection.getInputStream();
+
+        Response response = new Response(code, connection.getHeaderFields());
+        response.mConnectNanos = connectedNanos - startNanos;
+        response.mFirstByteNanos = firstByteNanos - connectedNanos;
+        if (raw == null) {
+            return handler.handle(response, new StringReader(""));
+        }
+
+        CountingInputStream counting = new CountingInputStream(raw);
+        InputStream source = token == null ? counting : new CancellableInputStream(counting, token);
+        /*
+         * Servers may repeat Content-Encoding on a response without a body, and a gzip decoder
+         * fails on an empty stream, so only a body that can have content is decoded
+         */
+        InputStream decoded = hasBody(code, connection.getContentLength())
+                ? decode(source, connection.getContentEncoding())
+                : source;
+        try {
+            /* The limit applies to the decoded bytes, so a small compressed body cannot blow up */
+            Reader body = new BufferedReader(new InputStreamReader(
+                    new LimitedInputStream(decoded, mMaxBodyBytes),
+                    charsetOf(connection.getContentType())), BUFFER_SIZE);
+            T result = handler.handle(response, body);
+            /* Anything the handler left unread must be consumed for the connection to be reused */
+            if (!drain(source, MAX_DRAIN_BYTES)) {
+                connection.disconnect();
+            }
+            return result;
+        } finally {
+            /* Closing (not disconnecting) hands the connection back to the pool */
+            decoded.close();
+            response.mWireBytes = counting.getCount();
+            response.mReadNanos = counting.getReadNanos();
+            mWireBytes.addAndGet(response.mWireBytes);
+            Log.v(TAG, "GET " + url.getHost() + " -> " + code
+                    + " (" + response.mWireBytes + " bytes on wire)");
+        }
+    }
+
+    /**
+     * Returns the timeout, shortened so that it does not reach past the token's deadline.
+     */
+    private static int boundTimeout(int timeoutMillis, CancellationToken token) {
+        if (token == null) return timeoutMillis;
+        /* Zero would mean no timeout at all */
+        return (int) Math.max(1, Math.min(timeoutMillis, token.getRemainingMillis()));
+    }
+
+    /**
+     * Returns false for responses that never have a body, 204 and 304, and for those that
+     * declare an empty one.
+     */
+    private static boolean hasBody(int code, int contentLength) {
+        return code != HttpURLConnection.HTTP_NO_CONTENT
+                && code != HttpURLConnection.HTTP_NOT_MODIFIED
+                && contentLength != 0;
+    }
+
+    /**
+     * Wraps the raw body with the decoder named by the Content-Encoding header.
+     */
+    private static InputStream decode(InputStream raw, String contentEncoding) throws IOException {
+        if (ENCODING_GZIP.equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(raw, BUFFER_SIZE);
+        } else if (ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding)) {
+            /* An Inflater passed in is not ended by close(), and holds native memory until it is */
+            final Inflater inflater = new Inflater();
+            return new InflaterInputStream(raw, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+        return raw;
+    }
+
+    /**
+     * Extracts the charset parameter of a Content-Type header, defaulting to UTF-8.
+     */
+    static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String param : contentType.split(";")) {
+                String trimmed = param.trim();
+                if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(trimmed.substring(8).replace("\"", ""));
+                    } catch (IllegalArgumentException e) {
+                        Log.w(TAG, "Unsupported charset " + trimmed);
+                    }
+                }
+            }
+        }
+        return DEFAULT_CHARSET;
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder(BUFFER_SIZE);
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.length() == 0 ? null : builder.toString();
+    }
+
+    /**
+     * Reads and discards the rest of the stream, giving up after the limit.
+     *
+     * @return True if the end of the stream was reached
+     */
+    private static boolean drain(InputStream in, long limit) throws IOException {
+        byte[] buffer = new byte[512];
+        long drained = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            drained += read;
+            if (drained > limit) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Consumes a response body as it is received.
+     */
+    public interface BodyHandler<T> {
+        /**
+         * @param response Status and headers of the response. Its body is not read.
+         * @param body     The decoded body, empty if the response has none. It does not have to
+         *                 be read to the end, and must not be kept after returning.
+         */
+        T handle(Response response, Reader body) throws IOException;
+    }
+
+    /**
+     * Thrown when a response body is larger than the client's limit.
+     */
+    public static final class BodyTooLargeException extends IOException {
+        BodyTooLargeException(long limit) {
+            super("Response body exceeds " + limit + " bytes");
+        }
+    }
+
+    /**
+     * An HTTP response. The body is only filled in by {@link #get(URL, Map)}, and the number of
+     * wire bytes and the read time once the body has been consumed.
+     */
+    public static final class Response {
+        private final int mCode;
+        private final Map<String, List<String>> mHeaders;
+        private String mBody;
+        private long mWireBytes;
+        private long mConnectNanos;
+        private long mFirstByteNanos;
+        private long mReadNanos;
+
+        Response(int code, Map<String, List<String>> headers) {
+            mCode = code;
+            mHeaders = headers;
+        }
+
+        public int getCode() { return mCode; }
+
+        public boolean isSuccessful() { return mCode >= 200 && mCode < 300; }
+
+        /** The decoded body, or null if the response had no body */
+        public String getBody() { return mBody; }
+
+        /** Number of bytes read from the network for this response, before decoding */
+        public long getWireBytes() { return mWireBytes; }
+
+        /** Time taken to look up the host and connect, close to zero for a reused connection */
+        public long getConnectNanos() { return mConnectNanos; }
+
+        /** Time from sending the request to receiving the status line */
+        public long getFirstByteNanos() { return mFirstByteNanos; }
+
+        /** Time spent blocked reading the body from the network */
+        public long getReadNanos() { return mReadNanos; }
+
+        /**
+         * Returns the last value of the given header, ignoring case, or null if it is absent.
+         */
+        public String getHeader(String name) {
+            if (mHeaders == null) return null;
+            for (Map.Entry<String, List<String>> header : mHeaders.entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey())) {
+                    List<String> values = header.getValue();
+                    return values == null || values.isEmpty() ? null
+                            : values.get(values.size() - 1);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Fails the read with {@link BodyTooLargeException} once more than a fixed number of bytes
+     * has passed through it.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long mLimit;
+        private long mCount;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            mLimit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) count(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long read) throws IOException {
+            mCount += read;
+            if (mCount > mLimit) throw new BodyTooLargeException(mLimit);
+        }
+    }
+
+    /**
+     * Checks the token before every read, so a body stops being consumed once the token is
+     * canceled or its deadline has passed.
+     */
+    private static final class CancellableInputStream extends FilterInputStream {
+        private final CancellationToken mToken;
+
+        CancellableInputStream(InputStream in, CancellationToken token) {
+            super(in);
+            mToken = token;
+        }
+
+        @Override
+        public int read() throws IOException {
+            mToken.throwIfCanceled();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            mToken.throwIfCanceled();
+            return super.read(buffer, offset, length);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            mToken.throwIfCanceled();
+            return super.skip(n);
+        }
+    }
+
+    /**
+     * Counts the bytes that pass through it and the time spent waiting for them, so we can tell
+     * how much was actually transferred and how long that took.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long mCount;
+        private long mReadNanos;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() { return mCount; }
+
+        long getReadNanos() { return mReadNanos; }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            mReadNanos += System.nanoTime() - start;
+            if (b != -1) mCount++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(buffer, offset, length);
+            mReadNanos += System.nanoTime() - start;
+            if (read > 0) mCount += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = System.nanoTime();
+            long skipped = super.skip(n);
+            mReadNanos += System.nanoTime() - start;
+            mCount += skipped;
+            return skipped;
+        }
+    }
+}